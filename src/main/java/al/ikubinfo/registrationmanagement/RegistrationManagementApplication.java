@@ -1,11 +1,16 @@
 package al.ikubinfo.registrationmanagement;
 
+import al.ikubinfo.registrationmanagement.repository.SlicingJpaRepository;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.boot.web.servlet.support.SpringBootServletInitializer;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
+@EnableJpaRepositories(repositoryBaseClass = SlicingJpaRepository.class)
 public class RegistrationManagementApplication extends SpringBootServletInitializer {
 
 
@@ -1,81 +1,418 @@
 package al.ikubinfo.registrationmanagement.controller;
 
+import al.ikubinfo.registrationmanagement.converter.ExportJobConverter;
 import al.ikubinfo.registrationmanagement.dto.BaseDto;
+import al.ikubinfo.registrationmanagement.dto.exportDtos.ExportJobDto;
+import al.ikubinfo.registrationmanagement.repository.CursorPage;
 import al.ikubinfo.registrationmanagement.repository.criteria.BaseCriteria;
+import al.ikubinfo.registrationmanagement.service.ExportBulkheadService;
+import al.ikubinfo.registrationmanagement.service.ExportJobService;
+import al.ikubinfo.registrationmanagement.service.ExportPlannerService;
+import al.ikubinfo.registrationmanagement.service.ExportSnapshotService;
 import al.ikubinfo.registrationmanagement.service.ServiceTemplate;
-import lombok.AllArgsConstructor;
+import al.ikubinfo.registrationmanagement.service.export.ExportCompression;
+import al.ikubinfo.registrationmanagement.service.export.ExportFormat;
+import al.ikubinfo.registrationmanagement.service.export.ExportJob;
+import al.ikubinfo.registrationmanagement.service.export.ExportJobStatus;
+import al.ikubinfo.registrationmanagement.service.export.ExportPermit;
+import al.ikubinfo.registrationmanagement.service.export.ExportPlan;
+import al.ikubinfo.registrationmanagement.service.export.ExportProgress;
+import al.ikubinfo.registrationmanagement.service.export.ExportSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.RandomStringUtils;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.Nullable;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-@AllArgsConstructor
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+@RequiredArgsConstructor
 public abstract class ControllerTemplate<
         D extends BaseDto,
         C extends BaseCriteria,
         S extends ServiceTemplate> {
-
+    /**
+     * Request attributes through which tomcat sends a file with sendfile once the handler returns
+     */
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
 
     protected final S service;
 
+    @Autowired
+    private ExportJobService exportJobService;
+
+    @Autowired
+    private ExportBulkheadService exportBulkhead;
+
+    @Autowired
+    private ExportPlannerService exportPlanner;
+
+    @Autowired
+    private ExportSnapshotService exportSnapshotService;
+
+    @Autowired
+    private ExportCompression exportCompression;
+
+    @Autowired
+    private ExportJobConverter exportJobConverter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Adds the links of the pages before and after the listed one as {@code previousPage} and {@code nextPage},
+     * the current request with the cursor of the page. Missing neighbours are added as null
+     *
+     * @param mv   list view
+     * @param page listed page
+     */
+    protected void addCursorLinks(ModelAndView mv, CursorPage<?> page) {
+        mv.addObject("previousPage", cursorLink(page.getPreviousCursor()));
+        mv.addObject("nextPage", cursorLink(page.getNextCursor()));
+    }
+
+    @Nullable
+    private static String cursorLink(@Nullable String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        return ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("cursor", cursor)
+                .replaceQueryParam("pageNumber")
+                .toUriString();
+    }
+
     /**
-     * Exports the criteria data into a excel file
+     * Exports the criteria data into a excel file. Depending on the number of rows the file is built in
+     * memory, streamed, or handed to a background job in which case the job is returned with 202
      *
      * @param criteria
      * @return ResponseEntity
      */
     @GetMapping(value = "exportToExcel")
-    public ResponseEntity<Resource> export(@Nullable C criteria) {
-        ByteArrayResource resource;
-        HttpHeaders headers = new HttpHeaders();
-        String fileName = RandomStringUtils.randomAlphanumeric(17).toUpperCase();
-        resource = new ByteArrayResource(service.createExcel(criteria));
-        headers.setContentType(new MediaType("application", "vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
-        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + ".xlsx\"");
-        return ResponseEntity.ok()
-                .headers(headers)
-                .body(resource);
+    public ResponseEntity<StreamingResponseBody> export(@Nullable C criteria) throws IOException {
+        return exportPlanned(criteria, ExportFormat.EXCEL, false);
     }
 
     /**
-     * Exports the criteria data into a cvs file
+     * Streams the criteria data into a excel file. Rows go through a sliding window workbook and the file
+     * is written directly to the response
      *
      * @param criteria
      * @return ResponseEntity
      */
+    @GetMapping(value = "exportToExcel/stream")
+    public ResponseEntity<StreamingResponseBody> streamToExcel(@Nullable C criteria) {
+        return exportStreamed(criteria, ExportFormat.EXCEL, false);
+    }
+
+    /**
+     * Exports the criteria data into a cvs file. Depending on the number of rows the file is built in
+     * memory, streamed, or handed to a background job in which case the job is returned with 202. The
+     * file is gzip encoded when the client accepts it
+     *
+     * @param criteria
+     * @param acceptEncoding content codings accepted by the client
+     * @return ResponseEntity
+     */
     @GetMapping(value = "exportToCvs")
-    public ResponseEntity<Resource> exportToCvs(@Nullable C criteria) {
-        ByteArrayResource resource;
-        HttpHeaders headers = new HttpHeaders();
-        String fileName = RandomStringUtils.randomAlphanumeric(17).toUpperCase();
-        resource = new ByteArrayResource(service.createCsv(criteria));
-        headers.setContentType(new MediaType("text", "csv"));
-        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + ".csv\"");
+    public ResponseEntity<StreamingResponseBody> exportToCvs(@Nullable C criteria,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
+            throws IOException {
+        return exportPlanned(criteria, ExportFormat.CSV, ExportCompression.acceptsGzip(acceptEncoding));
+    }
+
+    /**
+     * Streams the criteria data into a cvs file. Rows are written to the response while they are read
+     * from the database instead of building the whole file in memory first, and gzip encoded on the fly
+     * when the client accepts it
+     *
+     * @param criteria
+     * @param acceptEncoding content codings accepted by the client
+     * @return ResponseEntity
+     */
+    @GetMapping(value = "exportToCvs/stream")
+    public ResponseEntity<StreamingResponseBody> streamToCvs(@Nullable C criteria,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return exportStreamed(criteria, ExportFormat.CSV, ExportCompression.acceptsGzip(acceptEncoding));
+    }
+
+    /**
+     * Exports the criteria data into a pdf file. Depending on the number of rows the file is built in
+     * memory, streamed, or handed to a background job in which case the job is returned with 202
+     *
+     * @param criteria
+     * @return ResponseEntity
+     */
+    @GetMapping(value = "exportToPdf")
+    public ResponseEntity<StreamingResponseBody> exportToPdf(@Nullable C criteria) throws IOException {
+        return exportPlanned(criteria, ExportFormat.PDF, false);
+    }
+
+    /**
+     * Streams the criteria data into a pdf file. The document is laid out page by page and buffered in a
+     * temp file rather than in memory
+     *
+     * @param criteria
+     * @return ResponseEntity
+     */
+    @GetMapping(value = "exportToPdf/stream")
+    public ResponseEntity<StreamingResponseBody> streamToPdf(@Nullable C criteria) {
+        return exportStreamed(criteria, ExportFormat.PDF, false);
+    }
+
+    /**
+     * Downloads the snapshot of the criteria export. Conditional and range requests are answered from the
+     * snapshot file, full downloads go through sendfile when the container supports it. While the snapshot
+     * is missing or older than the data, it is generated in the background for the next request and this
+     * one is answered with a queued export job, see {@link #submitExportJob}
+     *
+     * @param criteria
+     * @param format     export file format
+     * @param webRequest current request
+     * @return ResponseEntity with the snapshot, or the queued job
+     */
+    @SuppressWarnings("unchecked")
+    @GetMapping(value = "exportSnapshots")
+    public ResponseEntity<?> downloadExportSnapshot(@Nullable C criteria, @RequestParam ExportFormat format,
+                                                    ServletWebRequest webRequest) {
+        ExportSnapshot snapshot = exportSnapshotService.findSnapshot(service, criteria, format);
+        if (snapshot == null) {
+            return exportAsync(criteria, format);
+        }
+        if (webRequest.checkNotModified(snapshot.getEtag(), snapshot.getCreatedAt().toEpochMilli())) {
+            return null;
+        }
+
+        HttpHeaders headers = attachmentHeaders(format);
+        headers.setETag(snapshot.getEtag());
+        headers.setLastModified(snapshot.getCreatedAt());
+        headers.setCacheControl(CacheControl.noCache());
+        HttpServletRequest request = webRequest.getRequest();
+        if (request.getHeader(HttpHeaders.RANGE) == null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, snapshot.getFile().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, snapshot.getSize());
+            headers.setContentLength(snapshot.getSize());
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .build();
+        }
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(resource);
+                .body(new FileSystemResource(snapshot.getFile()));
     }
 
     /**
-     * Exports the criteria data into a pdf file
+     * Starts a background export of the criteria data. The job can then be polled, followed through
+     * server sent events, cancelled and downloaded once completed
      *
      * @param criteria
+     * @param format   export file format
+     * @return ResponseEntity with the queued job
+     */
+    @PostMapping(value = "exportJobs")
+    public ResponseEntity<ExportJobDto> submitExportJob(@Nullable C criteria, @RequestParam ExportFormat format) {
+        return exportAsync(criteria, format);
+    }
+
+    /**
+     * Retrieve the state of an export job
+     *
+     * @param jobId job id
      * @return ResponseEntity
      */
-    @GetMapping(value = "exportToPdf")
-    public ResponseEntity<Resource> exportToPdf(@Nullable C criteria) {
-        ByteArrayResource resource;
+    @GetMapping(value = "exportJobs/{jobId}")
+    public ResponseEntity<ExportJobDto> getExportJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(exportJobConverter.toDto(exportJobService.getJob(jobId)));
+    }
+
+    /**
+     * Follow the progress of an export job as server sent events
+     *
+     * @param jobId job id
+     * @return SseEmitter
+     */
+    @GetMapping(value = "exportJobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter followExportJob(@PathVariable String jobId) {
+        return exportJobService.subscribe(jobId);
+    }
+
+    /**
+     * Cancel an export job
+     *
+     * @param jobId job id
+     * @return ResponseEntity
+     */
+    @DeleteMapping(value = "exportJobs/{jobId}")
+    public ResponseEntity<ExportJobDto> cancelExportJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(exportJobConverter.toDto(exportJobService.cancel(jobId)));
+    }
+
+    /**
+     * Download the file of a completed export job
+     *
+     * @param jobId job id
+     * @return ResponseEntity
+     */
+    @GetMapping(value = "exportJobs/{jobId}/download")
+    public ResponseEntity<Resource> downloadExportJob(@PathVariable String jobId) {
+        ExportJob job = exportJobService.getJob(jobId);
+        if (job.getStatus() != ExportJobStatus.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
         HttpHeaders headers = new HttpHeaders();
-        String fileName = RandomStringUtils.randomAlphanumeric(17).toUpperCase();
-        resource = new ByteArrayResource(service.createPdf(criteria));
-        headers.setContentType(MediaType.APPLICATION_PDF);
-        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + ".pdf\"");
+        headers.setContentType(job.getFormat().getMediaType());
+        headers.set(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + job.getId() + "." + job.getFormat().getExtension() + "\"");
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(resource);
+                .body(new FileSystemResource(job.getFile()));
+    }
+
+    /**
+     * Every strategy answers with a {@link StreamingResponseBody}, the only body type written on the async
+     * executor rather than on the request thread: the bytes of a file built in memory, the streamed export,
+     * or the json of the queued job
+     */
+    private ResponseEntity<StreamingResponseBody> exportPlanned(@Nullable C criteria, ExportFormat format,
+                                                                boolean gzip) throws IOException {
+        ExportPlan plan = exportPlanner.plan(service, criteria, format);
+        switch (plan.getStrategy()) {
+            case IN_MEMORY:
+                return exportInMemory(criteria, plan, gzip);
+            case STREAMING:
+                return exportStreamed(criteria, exportBulkhead.acquire(format, plan.getRows(), false), format, gzip);
+            default:
+                ResponseEntity<ExportJobDto> accepted = exportAsync(criteria, format);
+                byte[] job = objectMapper.writeValueAsBytes(accepted.getBody());
+                return ResponseEntity.status(accepted.getStatusCode())
+                        .headers(accepted.getHeaders())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(output -> output.write(job));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ResponseEntity<StreamingResponseBody> exportInMemory(@Nullable C criteria, ExportPlan plan, boolean gzip)
+            throws IOException {
+        byte[] content;
+        try (ExportPermit permit = exportBulkhead.acquire(plan.getFormat(), plan.getRows(), true)) {
+            switch (plan.getFormat()) {
+                case CSV:
+                    content = service.createCsv(criteria);
+                    break;
+                case EXCEL:
+                    content = service.createExcel(criteria);
+                    break;
+                default:
+                    content = service.createPdf(criteria);
+            }
+        }
+        if (gzip) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 4);
+            try (GZIPOutputStream output = exportCompression.gzip(compressed)) {
+                output.write(content);
+            }
+            content = compressed.toByteArray();
+        }
+        byte[] file = content;
+        return ResponseEntity.ok()
+                .headers(attachmentHeaders(plan.getFormat(), gzip))
+                .contentLength(file.length)
+                .body(output -> output.write(file));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ResponseEntity<StreamingResponseBody> exportStreamed(@Nullable C criteria, ExportFormat format,
+                                                                 boolean gzip) {
+        return exportStreamed(criteria, exportBulkhead.acquire(service, criteria, format, false), format, gzip);
+    }
+
+    private ResponseEntity<StreamingResponseBody> exportStreamed(@Nullable C criteria, ExportPermit permit,
+                                                                 ExportFormat format, boolean gzip) {
+        StreamingResponseBody body = PermittedStreamingBody.of(permit,
+                output -> write(format, criteria, output, gzip));
+        return ResponseEntity.ok()
+                .headers(attachmentHeaders(format, gzip))
+                .body(body);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write(ExportFormat format, @Nullable C criteria, OutputStream output, boolean gzip)
+            throws IOException {
+        if (!gzip) {
+            service.write(format, criteria, output, ExportProgress.NONE);
+            return;
+        }
+        GZIPOutputStream compressed = exportCompression.gzip(output);
+        service.write(format, criteria, compressed, ExportProgress.NONE);
+        compressed.finish();
+    }
+
+    /**
+     * Queues a background export. The job location is resolved next to the current endpoint, so this works
+     * for both {@code exportJobs} and the planned export endpoints
+     */
+    @SuppressWarnings("unchecked")
+    private ResponseEntity<ExportJobDto> exportAsync(@Nullable C criteria, ExportFormat format) {
+        ExportJob job = exportJobService.submit(service, criteria, format);
+        String path = Objects.requireNonNull(ServletUriComponentsBuilder.fromCurrentRequestUri().build().getPath());
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequestUri()
+                        .replacePath(path.substring(0, path.lastIndexOf('/')))
+                        .path("/exportJobs/{jobId}")
+                        .buildAndExpand(job.getId())
+                        .toUri())
+                .body(exportJobConverter.toDto(job));
+    }
+
+    /**
+     * Csv responses depend on the accepted encodings, so caches must keep them apart
+     */
+    private HttpHeaders attachmentHeaders(ExportFormat format, boolean gzip) {
+        HttpHeaders headers = attachmentHeaders(format);
+        if (format == ExportFormat.CSV) {
+            headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        }
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return headers;
+    }
+
+    private HttpHeaders attachmentHeaders(ExportFormat format) {
+        HttpHeaders headers = new HttpHeaders();
+        String fileName = RandomStringUtils.randomAlphanumeric(17).toUpperCase();
+        headers.setContentType(format.getMediaType());
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "." + format.getExtension() + "\"");
+        return headers;
     }
 }
@@ -2,20 +2,23 @@ package al.ikubinfo.registrationmanagement.controller;
 
 import al.ikubinfo.registrationmanagement.dto.courseDtos.CourseDto;
 import al.ikubinfo.registrationmanagement.dto.courseDtos.NewCourseDto;
+import al.ikubinfo.registrationmanagement.dto.courseDtos.SimplifiedCourseDto;
 import al.ikubinfo.registrationmanagement.dto.courseDtos.UpdateCourseDto;
+import al.ikubinfo.registrationmanagement.dto.searchDtos.SuggestionDto;
+import al.ikubinfo.registrationmanagement.repository.CursorPage;
 import al.ikubinfo.registrationmanagement.repository.criteria.CourseCriteria;
+import al.ikubinfo.registrationmanagement.service.AutocompleteService;
 import al.ikubinfo.registrationmanagement.service.CourseService;
 import al.ikubinfo.registrationmanagement.service.CourseUserService;
-import al.ikubinfo.registrationmanagement.service.UserService;
 import al.ikubinfo.registrationmanagement.service.impl.CourseServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.ModelAndView;
 import javax.validation.Valid;
+import java.util.List;
 
 @Controller
 @RequestMapping("courses")
@@ -26,11 +29,11 @@ public class CourseController extends ControllerTemplate<CourseDto, CourseCriter
 
     @Autowired
     private CourseService courseService;
-    @Autowired
-    private UserService userService;
 
     @Autowired
     private CourseUserService courseUserService;
+    @Autowired
+    private AutocompleteService autocompleteService;
 
     public CourseController(CourseServiceImpl service) {
         super(service);
@@ -44,10 +47,11 @@ public class CourseController extends ControllerTemplate<CourseDto, CourseCriter
      */
     @GetMapping()
     public ModelAndView listCourses(@Valid CourseCriteria criteria) {
-        Page<CourseDto> courseDtos = courseService.filterCourses(criteria);
+        CursorPage<SimplifiedCourseDto> courseDtos = courseService.listCourses(criteria);
         ModelAndView mv = new ModelAndView(COURSES);
         mv.addObject(COURSES, courseDtos);
         mv.addObject("courseCount", courseService.getCourseCount());
+        addCursorLinks(mv, courseDtos);
         return mv;
     }
 
@@ -62,11 +66,24 @@ public class CourseController extends ControllerTemplate<CourseDto, CourseCriter
         ModelAndView mv = new ModelAndView("course_details");
         mv.addObject(COURSE, courseService.getCourseById(id));
         mv.addObject("users", courseService.getAllStudentsByCourseId(id));
-        mv.addObject("userList", userService.getUnassignedUsers());
         mv.addObject("userCourseList", courseUserService.getCourseUserListByCourseId(id));
         return mv;
     }
 
+    /**
+     * Courses of the course picker, those with the name or a word of it starting with the typed text
+     *
+     * @param query typed text, at least two characters
+     * @param limit most suggestions returned
+     * @return suggestions, the most enrolled first
+     */
+    @GetMapping("/autocomplete")
+    @ResponseBody
+    public List<SuggestionDto> autocomplete(@RequestParam(name = "q", defaultValue = "") String query,
+                                            @RequestParam(defaultValue = "10") int limit) {
+        return autocompleteService.suggestCourses(query, limit);
+    }
+
     /**
      * Update course
      *
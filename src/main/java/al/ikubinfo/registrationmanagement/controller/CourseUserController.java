@@ -3,19 +3,25 @@ package al.ikubinfo.registrationmanagement.controller;
 import al.ikubinfo.registrationmanagement.dto.courseUserDtos.CourseUserDto;
 import al.ikubinfo.registrationmanagement.dto.courseUserDtos.CourseUserListDto;
 import al.ikubinfo.registrationmanagement.dto.userDtos.UserDto;
-import al.ikubinfo.registrationmanagement.repository.criteria.CourseCriteria;
+import al.ikubinfo.registrationmanagement.repository.CursorPage;
 import al.ikubinfo.registrationmanagement.repository.criteria.CourseUserCriteria;
 import al.ikubinfo.registrationmanagement.service.CourseService;
+import al.ikubinfo.registrationmanagement.service.ExportBulkheadService;
 import al.ikubinfo.registrationmanagement.service.CourseUserService;
 import al.ikubinfo.registrationmanagement.service.UserService;
+import al.ikubinfo.registrationmanagement.service.export.ExportFormat;
+import al.ikubinfo.registrationmanagement.service.export.ExportPermit;
+import al.ikubinfo.registrationmanagement.service.export.ExportWatermark;
 import al.ikubinfo.registrationmanagement.service.impl.CourseUserServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import javax.validation.Valid;
 import java.time.LocalDate;
 
@@ -24,8 +30,8 @@ import java.time.LocalDate;
 public class CourseUserController extends ControllerTemplate<CourseUserDto, CourseUserCriteria, CourseUserServiceImpl> {
     private static final String REDIRECT_TO_HOMEPAGE_URL = "redirect:/courses";
     private static final String REDIRECT_TO_ALL_URL = "redirect:/course-user/all";
-    private static final String COURSES = "courses";
     private static final String COURSEUSER = "courseUser";
+    private static final String EXPORT_WATERMARK = "Export-Watermark";
 
     @Autowired
     private CourseUserService courseUserService;
@@ -34,6 +40,8 @@ public class CourseUserController extends ControllerTemplate<CourseUserDto, Cour
     private CourseService courseService;
     @Autowired
     private UserService userService;
+    @Autowired
+    private ExportBulkheadService exportBulkhead;
 
     public CourseUserController(CourseUserServiceImpl service) {
         super(service);
@@ -47,10 +55,11 @@ public class CourseUserController extends ControllerTemplate<CourseUserDto, Cour
      */
     @GetMapping("/all")
     public ModelAndView getCourseUserList(@Valid CourseUserCriteria criteria) {
-        Page<CourseUserListDto> userCourseList = courseUserService.getCourseUserList(criteria);
+        CursorPage<CourseUserListDto> userCourseList = courseUserService.getCourseUserList(criteria);
         ModelAndView mv = new ModelAndView("user_course_list");
         mv.addObject("UserCourseList", userCourseList);
         mv.addObject("courseUserCount", courseUserService.getCourseUserCount());
+        addCursorLinks(mv, userCourseList);
         return mv;
     }
 
@@ -102,7 +111,6 @@ public class CourseUserController extends ControllerTemplate<CourseUserDto, Cour
         UserDto user = userService.getUserById(userId);
         courseUserDto.setUserId(user.getId());
         mv.addObject("courseUserDto", courseUserDto);
-        mv.addObject(COURSES, courseService.filterCourses(new CourseCriteria()));
         return mv;
     }
 
@@ -122,6 +130,28 @@ public class CourseUserController extends ControllerTemplate<CourseUserDto, Cour
         return modelAndView;
     }
 
+    /**
+     * Streams the enrolments changed since the watermark of a previous delta as csv, with tombstones for
+     * removed enrolments. The watermark to pass next time is returned in the {@code Export-Watermark}
+     * header. Without a watermark all enrolments are exported.
+     *
+     * @param since watermark token of the previous delta
+     * @return ResponseEntity
+     */
+    @GetMapping("exportDelta")
+    public ResponseEntity<StreamingResponseBody> exportDelta(@RequestParam(required = false) String since) {
+        ExportWatermark from = since != null ? ExportWatermark.parse(since) : null;
+        ExportWatermark next = ExportWatermark.now();
+        ExportPermit permit = exportBulkhead.acquire(ExportFormat.CSV, 0, false);
+        StreamingResponseBody body = PermittedStreamingBody.of(permit,
+                output -> courseUserService.writeDeltaCsv(from, output));
+        return ResponseEntity.ok()
+                .contentType(ExportFormat.CSV.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"enrolments-delta-" + next.getSince() + ".csv\"")
+                .header(EXPORT_WATERMARK, next.toToken())
+                .body(body);
+    }
+
     /**
      * Delete relationship between user and course
      *
@@ -0,0 +1,62 @@
+package al.ikubinfo.registrationmanagement.controller;
+
+import al.ikubinfo.registrationmanagement.service.ExportBulkheadService;
+import al.ikubinfo.registrationmanagement.service.ExportBundleService;
+import al.ikubinfo.registrationmanagement.service.export.ExportFormat;
+import al.ikubinfo.registrationmanagement.service.export.ExportPermit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+@Controller
+@RequestMapping("exports")
+public class ExportController {
+    private static final MediaType APPLICATION_ZIP = new MediaType("application", "zip");
+
+    @Autowired
+    private ExportBundleService exportBundleService;
+
+    @Autowired
+    private ExportBulkheadService exportBulkhead;
+
+    /**
+     * Streams the users, courses and enrolments as csv files of one zip archive
+     *
+     * @return ResponseEntity
+     */
+    @GetMapping(value = "bundle")
+    public ResponseEntity<StreamingResponseBody> exportBundle() {
+        ExportPermit permit = exportBulkhead.acquire(ExportFormat.CSV, 0, false);
+        StreamingResponseBody body = PermittedStreamingBody.of(permit, exportBundleService::writeCsvBundle);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(APPLICATION_ZIP);
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"export-" + LocalDate.now() + ".zip\"");
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
+    }
+
+    /**
+     * Streams a workbook of the courses and the students enrolled in each of them
+     *
+     * @return ResponseEntity
+     */
+    @GetMapping(value = "courseRosters")
+    public ResponseEntity<StreamingResponseBody> exportCourseRosters() {
+        ExportPermit permit = exportBulkhead.acquire(ExportFormat.EXCEL, 0, false);
+        StreamingResponseBody body = PermittedStreamingBody.of(permit,
+                exportBundleService::writeCourseRosterWorkbook);
+        return ResponseEntity.ok()
+                .contentType(ExportFormat.EXCEL.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"course-rosters-" + LocalDate.now() + ".xlsx\"")
+                .body(body);
+    }
+}
@@ -0,0 +1,45 @@
+package al.ikubinfo.registrationmanagement.controller;
+
+import al.ikubinfo.registrationmanagement.service.export.ExportPermit;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Ties a bulkhead permit taken on the request thread to the streamed body of the response. The body closes
+ * the permit once written, and the async request closes it when it completes, so the permit is also freed
+ * when the body never runs, because the request timed out or the executor rejected it.
+ */
+final class PermittedStreamingBody {
+
+    private PermittedStreamingBody() {
+    }
+
+    /**
+     * Must be called on the request thread of the handler returning the body
+     *
+     * @param permit permit of the export, closed once the body is written or the request completed
+     * @param body   writes the export
+     * @return body to return from the handler
+     */
+    static StreamingResponseBody of(ExportPermit permit, StreamingResponseBody body) {
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+        WebAsyncUtils.getAsyncManager(attributes.getRequest())
+                .registerCallableInterceptor(ExportPermit.class.getName(), new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                        permit.close();
+                    }
+                });
+        return output -> {
+            try (permit) {
+                body.writeTo(output);
+            }
+        };
+    }
+}
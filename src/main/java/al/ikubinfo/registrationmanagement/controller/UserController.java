@@ -3,23 +3,31 @@ package al.ikubinfo.registrationmanagement.controller;
 import al.ikubinfo.registrationmanagement.dto.authDtos.PasswordDto;
 import al.ikubinfo.registrationmanagement.dto.courseDtos.CourseDto;
 import al.ikubinfo.registrationmanagement.dto.courseUserDtos.CourseUserDto;
+import al.ikubinfo.registrationmanagement.dto.importDtos.ImportReportDto;
 import al.ikubinfo.registrationmanagement.dto.userDtos.NewUserDto;
+import al.ikubinfo.registrationmanagement.dto.userDtos.SimplifiedUserDto;
 import al.ikubinfo.registrationmanagement.dto.userDtos.UpdateUserDto;
 import al.ikubinfo.registrationmanagement.dto.userDtos.UserDto;
+import al.ikubinfo.registrationmanagement.dto.searchDtos.SuggestionDto;
+import al.ikubinfo.registrationmanagement.repository.CursorPage;
 import al.ikubinfo.registrationmanagement.repository.criteria.UserCriteria;
+import al.ikubinfo.registrationmanagement.service.AutocompleteService;
 import al.ikubinfo.registrationmanagement.service.CourseService;
 import al.ikubinfo.registrationmanagement.service.CourseUserService;
+import al.ikubinfo.registrationmanagement.service.UserImportService;
 import al.ikubinfo.registrationmanagement.service.impl.UserServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.ModelAndView;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.util.List;
 
 @Controller
@@ -34,6 +42,10 @@ public class UserController extends ControllerTemplate<UserDto, UserCriteria, Us
     private CourseService courseService;
     @Autowired
     private CourseUserService courseUserService;
+    @Autowired
+    private AutocompleteService autocompleteService;
+    @Autowired
+    private UserImportService userImportService;
 
     public UserController(UserServiceImpl service) {
         super(service);
@@ -48,13 +60,31 @@ public class UserController extends ControllerTemplate<UserDto, UserCriteria, Us
      */
     @GetMapping()
     public ModelAndView listUsers(@Valid UserCriteria criteria) {
-        Page<UserDto> users = userService.filterUsers(criteria);
+        CursorPage<SimplifiedUserDto> users = userService.listUsers(criteria);
         ModelAndView mv = new ModelAndView(USERS);
         mv.addObject(USERS, users);
         mv.addObject("userCount", userService.countUsers());
+        addCursorLinks(mv, users);
         return mv;
     }
 
+    /**
+     * Students of the student picker, those with the name, a word of it or the email starting with the typed
+     * text
+     *
+     * @param query      typed text, at least two characters
+     * @param limit      most suggestions returned
+     * @param unassigned only the students not enrolled in any course
+     * @return suggestions, the most recently changed first
+     */
+    @GetMapping("/autocomplete")
+    @ResponseBody
+    public List<SuggestionDto> autocomplete(@RequestParam(name = "q", defaultValue = "") String query,
+                                            @RequestParam(defaultValue = "10") int limit,
+                                            @RequestParam(defaultValue = "false") boolean unassigned) {
+        return autocompleteService.suggestStudents(query, limit, unassigned);
+    }
+
     /**
      * Retrieve user details
      *
@@ -99,6 +129,18 @@ public class UserController extends ControllerTemplate<UserDto, UserCriteria, Us
         return new ModelAndView(REDIRECT_TO_HOMEPAGE_URL);
     }
 
+    /**
+     * Import students from a csv file with the columns of the csv export
+     *
+     * @param file uploaded csv
+     * @return imported rows and the error of every skipped row
+     */
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @ResponseBody
+    public ImportReportDto importStudents(@RequestParam("file") MultipartFile file) throws IOException {
+        return userImportService.importStudents(file.getInputStream());
+    }
+
     /**
      * Assigns user to course
      *
@@ -3,11 +3,18 @@ package al.ikubinfo.registrationmanagement.converter;
 import al.ikubinfo.registrationmanagement.dto.courseDtos.*;
 import al.ikubinfo.registrationmanagement.entity.CourseEntity;
 import org.springframework.stereotype.Component;
+
+import javax.persistence.Tuple;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Selection;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Component
 public class CourseConverter implements BidirectionalConverter<CourseDto, CourseEntity> {
+    public static final int SIMPLIFIED_COURSE_COLUMNS = 8;
+
     @Override
     public CourseDto toDto(CourseEntity entity) {
         CourseUserConverter converter =new CourseUserConverter();
@@ -40,6 +47,43 @@ public class CourseConverter implements BidirectionalConverter<CourseDto, Course
         dto.setPrice(entity.getPrice());
         return dto;
     }
+
+    /**
+     * Columns of a {@link SimplifiedCourseDto}, read back by {@link #toSimplifiedCourseDto(Tuple, int)}
+     *
+     * @param course path of the course in a list query
+     * @return {@link #SIMPLIFIED_COURSE_COLUMNS} selections
+     */
+    public List<Selection<?>> getSimplifiedCourseSelections(Path<CourseEntity> course) {
+        return List.of(
+                course.get("id"),
+                course.get("courseName"),
+                course.get("price"),
+                course.get("status"),
+                course.get("courseStartDate"),
+                course.get("courseEndDate"),
+                course.get("registrationStartDate"),
+                course.get("registrationEndDate"));
+    }
+
+    /**
+     * @param tuple  row of a list query
+     * @param offset index of the first column of {@link #getSimplifiedCourseSelections(Path)} in the row
+     * @return SimplifiedCourseDto
+     */
+    public SimplifiedCourseDto toSimplifiedCourseDto(Tuple tuple, int offset) {
+        SimplifiedCourseDto dto = new SimplifiedCourseDto();
+        dto.setId(tuple.get(offset, Long.class));
+        dto.setCourseName(tuple.get(offset + 1, String.class));
+        dto.setPrice(tuple.get(offset + 2, Double.class));
+        dto.setStatus(tuple.get(offset + 3, CourseStatus.class));
+        dto.setCourseStartDate(tuple.get(offset + 4, LocalDate.class));
+        dto.setCourseEndDate(tuple.get(offset + 5, LocalDate.class));
+        dto.setRegistrationStartDate(tuple.get(offset + 6, LocalDate.class));
+        dto.setRegistrationEndDate(tuple.get(offset + 7, LocalDate.class));
+        return dto;
+    }
+
     public CourseEntity toEntity(CourseDto dto) {
         CourseEntity entity = new CourseEntity();
         entity.setCourseStartDate(dto.getCourseStartDate());
@@ -13,7 +13,12 @@ import al.ikubinfo.registrationmanagement.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.persistence.Tuple;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -106,6 +111,46 @@ public class CourseUserConverter implements BidirectionalConverter<CourseUserDto
         return dto;
     }
 
+    /**
+     * Columns of a {@link CourseUserListDto}: the student, the course, then the enrolment. Read back by
+     * {@link #toCourseUserList(Tuple)}
+     *
+     * @param root enrolment list query root
+     * @return selections
+     */
+    public List<Selection<?>> getCourseUserListSelections(Root<CourseUserEntity> root) {
+        Path<UserEntity> user = root.get("user");
+        Path<CourseEntity> course = root.get("course");
+        List<Selection<?>> selections = new ArrayList<>(userConverter.getSimplifiedUserSelections(user));
+        selections.addAll(courseConverter.getSimplifiedCourseSelections(course));
+        selections.addAll(List.of(
+                root.get("id"),
+                root.get("status"),
+                root.get("reference"),
+                root.get("comment"),
+                root.get("pricePaid"),
+                root.get("priceReduction"),
+                root.get("createdDate"),
+                root.get("modifiedDate")));
+        return selections;
+    }
+
+    public CourseUserListDto toCourseUserList(Tuple tuple) {
+        int offset = UserConverter.SIMPLIFIED_USER_COLUMNS + CourseConverter.SIMPLIFIED_COURSE_COLUMNS;
+        CourseUserListDto dto = new CourseUserListDto();
+        dto.setUserDto(userConverter.toSimplifiedUserDto(tuple, 0));
+        dto.setCourseDto(courseConverter.toSimplifiedCourseDto(tuple, UserConverter.SIMPLIFIED_USER_COLUMNS));
+        dto.setId(tuple.get(offset, CourseUserId.class));
+        dto.setStatus(tuple.get(offset + 1, UserStatusEnum.class));
+        dto.setReference(tuple.get(offset + 2, String.class));
+        dto.setComment(tuple.get(offset + 3, String.class));
+        dto.setPricePaid(tuple.get(offset + 4, Double.class));
+        dto.setPriceReduction(tuple.get(offset + 5, Double.class));
+        dto.setCreatedDate(tuple.get(offset + 6, LocalDate.class));
+        dto.setModifiedDate(tuple.get(offset + 7, LocalDate.class));
+        return dto;
+    }
+
     public List<SimplifiedCourseUserDto> toCourseUserDtoList(List<CourseUserEntity> entities) {
         return entities.stream().map(this::toSimplifiedDto).collect(Collectors.toList());
     }
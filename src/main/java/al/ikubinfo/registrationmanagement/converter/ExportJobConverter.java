@@ -0,0 +1,20 @@
+package al.ikubinfo.registrationmanagement.converter;
+
+import al.ikubinfo.registrationmanagement.dto.exportDtos.ExportJobDto;
+import al.ikubinfo.registrationmanagement.service.export.ExportJob;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ExportJobConverter {
+    public ExportJobDto toDto(ExportJob job) {
+        ExportJobDto dto = new ExportJobDto();
+        dto.setId(job.getId());
+        dto.setFormat(job.getFormat());
+        dto.setStatus(job.getStatus());
+        dto.setRowsWritten(job.getRowsWritten().get());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        dto.setError(job.getError());
+        return dto;
+    }
+}
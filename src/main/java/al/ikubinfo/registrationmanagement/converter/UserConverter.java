@@ -5,8 +5,16 @@ import al.ikubinfo.registrationmanagement.entity.UserEntity;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.persistence.Tuple;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Selection;
+import java.time.LocalDate;
+import java.util.List;
+
 @Component
 public class UserConverter implements BidirectionalConverter<UserDto, UserEntity> {
+    public static final int SIMPLIFIED_USER_COLUMNS = 8;
+
     @Autowired
     private RoleConverter roleConverter;
 
@@ -36,6 +44,43 @@ public class UserConverter implements BidirectionalConverter<UserDto, UserEntity
         dto.setReachForm(entity.getReachForm());
         dto.setBirthDate(entity.getBirthDate());
         dto.setReachForm(entity.getReachForm());
+        dto.setAssigned(entity.is_assigned());
+        return dto;
+    }
+
+    /**
+     * Columns of a {@link SimplifiedUserDto}, read back by {@link #toSimplifiedUserDto(Tuple, int)}
+     *
+     * @param user path of the user in a list query
+     * @return {@link #SIMPLIFIED_USER_COLUMNS} selections
+     */
+    public List<Selection<?>> getSimplifiedUserSelections(Path<UserEntity> user) {
+        return List.of(
+                user.get("id"),
+                user.get("firstName"),
+                user.get("lastName"),
+                user.get("phoneNumber"),
+                user.get("email"),
+                user.get("reachForm"),
+                user.get("birthDate"),
+                user.get("is_assigned"));
+    }
+
+    /**
+     * @param tuple  row of a list query
+     * @param offset index of the first column of {@link #getSimplifiedUserSelections(Path)} in the row
+     * @return SimplifiedUserDto
+     */
+    public SimplifiedUserDto toSimplifiedUserDto(Tuple tuple, int offset) {
+        SimplifiedUserDto dto = new SimplifiedUserDto();
+        dto.setId(tuple.get(offset, Long.class));
+        dto.setFirstName(tuple.get(offset + 1, String.class));
+        dto.setLastName(tuple.get(offset + 2, String.class));
+        dto.setPhoneNumber(tuple.get(offset + 3, String.class));
+        dto.setEmail(tuple.get(offset + 4, String.class));
+        dto.setReachForm(tuple.get(offset + 5, ReachFormEnum.class));
+        dto.setBirthDate(tuple.get(offset + 6, LocalDate.class));
+        dto.setAssigned(tuple.get(offset + 7, Boolean.class));
         return dto;
     }
     public UserEntity toNewUserEntity(NewUserDto dto) {
@@ -0,0 +1,17 @@
+package al.ikubinfo.registrationmanagement.dto.exportDtos;
+
+import al.ikubinfo.registrationmanagement.service.export.ExportFormat;
+import al.ikubinfo.registrationmanagement.service.export.ExportJobStatus;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+public class ExportJobDto {
+    private String id;
+    private ExportFormat format;
+    private ExportJobStatus status;
+    private long rowsWritten;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+    private String error;
+}
@@ -0,0 +1,10 @@
+package al.ikubinfo.registrationmanagement.dto.importDtos;
+
+import lombok.Data;
+
+@Data
+public class ImportErrorDto {
+    private long line;
+    private String email;
+    private String message;
+}
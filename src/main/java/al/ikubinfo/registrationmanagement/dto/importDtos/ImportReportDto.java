@@ -0,0 +1,13 @@
+package al.ikubinfo.registrationmanagement.dto.importDtos;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ImportReportDto {
+    private long rowsRead;
+    private long imported;
+    private List<ImportErrorDto> errors = new ArrayList<>();
+}
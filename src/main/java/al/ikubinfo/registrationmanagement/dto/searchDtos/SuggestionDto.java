@@ -0,0 +1,9 @@
+package al.ikubinfo.registrationmanagement.dto.searchDtos;
+
+import al.ikubinfo.registrationmanagement.dto.BaseDto;
+import lombok.Data;
+
+@Data
+public class SuggestionDto extends BaseDto {
+    private String label;
+}
@@ -14,4 +14,5 @@ public class SimplifiedUserDto  extends BaseDto {
     private ReachFormEnum reachForm;
     @DateTimeFormat(pattern = "yyyy-MM-dd")
     private LocalDate birthDate;
+    private boolean isAssigned;
 }
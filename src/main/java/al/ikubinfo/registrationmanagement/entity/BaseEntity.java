@@ -1,14 +1,17 @@
 package al.ikubinfo.registrationmanagement.entity;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.CreationTimestamp;
-import org.hibernate.annotations.UpdateTimestamp;
 import javax.persistence.Column;
+import javax.persistence.EntityListeners;
 import javax.persistence.MappedSuperclass;
+import javax.persistence.Transient;
 import java.time.LocalDate;
 
 @MappedSuperclass
+@EntityListeners(EntityChangeListener.class)
 @Getter
 @Setter
 public abstract class BaseEntity {
@@ -16,12 +19,21 @@ public abstract class BaseEntity {
     @Column(name = "created_date")
     private LocalDate createdDate;
 
-    @UpdateTimestamp
+    /**
+     * Day of the insert or last update, soft deletes included, set by the {@link EntityChangeListener}
+     */
     @Column(name = "modified_date")
     private LocalDate modifiedDate;
 
     @Column(name = "deleted")
     private boolean deleted;
 
+    /**
+     * The deleted flag as last loaded or written, maintained by the {@link EntityChangeListener}
+     */
+    @Transient
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.PACKAGE)
+    private boolean deletedInDatabase;
 
 }
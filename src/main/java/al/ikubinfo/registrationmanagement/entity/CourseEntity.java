@@ -15,11 +15,23 @@ import java.util.List;
 @Getter
 @Setter
 @Where(clause = "deleted = false")
+@NamedEntityGraph(name = CourseEntity.FETCH_STUDENTS,
+        attributeNodes = @NamedAttributeNode(value = "courseUsers", subgraph = "enrolment"),
+        subgraphs = {
+                @NamedSubgraph(name = "enrolment",
+                        attributeNodes = @NamedAttributeNode(value = "user", subgraph = "student")),
+                @NamedSubgraph(name = "student", attributeNodes = @NamedAttributeNode("role"))
+        })
 @Table(name = "course")
 public class CourseEntity extends BaseEntity {
+    /**
+     * Fetch plan of the course list: the enrolments with their students
+     */
+    public static final String FETCH_STUDENTS = "CourseEntity.students";
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "course_id_seq")
+    @SequenceGenerator(name = "course_id_seq", sequenceName = "course_id_seq", allocationSize = 50)
     @Column(name = "id", unique = true, updatable = false)
     private Long id;
 
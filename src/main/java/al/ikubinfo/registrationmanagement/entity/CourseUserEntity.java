@@ -2,17 +2,21 @@ package al.ikubinfo.registrationmanagement.entity;
 
 import al.ikubinfo.registrationmanagement.dto.userDtos.UserStatusEnum;
 import lombok.Data;
-import org.hibernate.annotations.CreationTimestamp;
-import org.hibernate.annotations.UpdateTimestamp;
 import org.hibernate.annotations.Where;
 import javax.persistence.*;
 import javax.validation.constraints.Size;
-import java.time.LocalDate;
 @Data
 @Entity
+@NamedEntityGraph(name = CourseUserEntity.FETCH_COURSE_AND_USER,
+        attributeNodes = {@NamedAttributeNode("course"), @NamedAttributeNode(value = "user", subgraph = "student")},
+        subgraphs = @NamedSubgraph(name = "student", attributeNodes = @NamedAttributeNode("role")))
 @Table(name = "course_user")
 @Where(clause = "deleted = false")
 public class CourseUserEntity extends BaseEntity {
+    /**
+     * Fetch plan of the enrolment list: the course and the student of each enrolment
+     */
+    public static final String FETCH_COURSE_AND_USER = "CourseUserEntity.courseAndUser";
 
     @EmbeddedId
     private CourseUserId id;
@@ -25,14 +29,6 @@ public class CourseUserEntity extends BaseEntity {
     @MapsId("userId")
     private UserEntity user;
 
-    @CreationTimestamp
-    @Column(name = "created_date")
-    private LocalDate createdDate;
-
-    @UpdateTimestamp
-    @Column(name = "modified_date")
-    private LocalDate modifiedDate;
-
     @Enumerated(EnumType.STRING)
     @Column(name = "status")
     private UserStatusEnum status;
@@ -51,9 +47,6 @@ public class CourseUserEntity extends BaseEntity {
     @Column(name = "comment")
     private String comment;
 
-    @Column(name = "deleted")
-    private boolean deleted;
-
     public CourseUserEntity() {
         super();
     }
@@ -0,0 +1,22 @@
+package al.ikubinfo.registrationmanagement.entity;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published when an entity is inserted, updated or deleted
+ */
+@Getter
+@RequiredArgsConstructor
+public class EntityChangeEvent {
+    private final Class<? extends BaseEntity> entityType;
+    /**
+     * The changed entity, as written
+     */
+    private final BaseEntity entity;
+    /**
+     * Change in the number of live rows of the entity: 1 when a row is inserted or restored, -1 when it is
+     * deleted or soft deleted, 0 otherwise
+     */
+    private final int liveDelta;
+}
@@ -0,0 +1,60 @@
+package al.ikubinfo.registrationmanagement.entity;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import java.time.LocalDate;
+
+/**
+ * Turns the entity lifecycle callbacks into {@link EntityChangeEvent}s. Hibernate creates the listener
+ * through the Spring bean container, which injects the publisher. Bulk and native statements bypass it.
+ */
+public class EntityChangeListener {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostLoad
+    public void loaded(BaseEntity entity) {
+        entity.setDeletedInDatabase(entity.isDeleted());
+    }
+
+    @PostPersist
+    public void inserted(BaseEntity entity) {
+        publish(entity, entity.isDeleted() ? 0 : 1);
+    }
+
+    /**
+     * Every insert and update, a soft delete included, moves the modified date the delta export selects
+     * changed rows by
+     */
+    @PrePersist
+    @PreUpdate
+    public void modifying(BaseEntity entity) {
+        entity.setModifiedDate(LocalDate.now());
+    }
+
+    /**
+     * A soft delete or a restore is an update of the deleted flag, told apart from the flag as it was loaded
+     */
+    @PostUpdate
+    public void updated(BaseEntity entity) {
+        publish(entity, Boolean.compare(entity.isDeletedInDatabase(), entity.isDeleted()));
+    }
+
+    @PostRemove
+    public void removed(BaseEntity entity) {
+        publish(entity, entity.isDeletedInDatabase() ? 0 : -1);
+    }
+
+    private void publish(BaseEntity entity, int liveDelta) {
+        entity.setDeletedInDatabase(entity.isDeleted());
+        eventPublisher.publishEvent(new EntityChangeEvent(entity.getClass(), entity, liveDelta));
+    }
+}
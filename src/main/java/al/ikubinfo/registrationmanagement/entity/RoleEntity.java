@@ -15,7 +15,8 @@ import java.util.List;
 public class RoleEntity extends BaseEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "role_id_seq")
+    @SequenceGenerator(name = "role_id_seq", sequenceName = "role_id_seq", allocationSize = 50)
     @Column(name = "id", unique = true, updatable = false)
     private Long id;
 
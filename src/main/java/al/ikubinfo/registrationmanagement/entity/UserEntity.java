@@ -13,13 +13,19 @@ import java.util.List;
 
 @Data
 @Entity
+@NamedEntityGraph(name = UserEntity.FETCH_ROLE, attributeNodes = @NamedAttributeNode("role"))
 @Table(name = "users")
 @Where(clause = "deleted = false")
 @NoArgsConstructor
 public class UserEntity extends BaseEntity {
+    /**
+     * Fetch plan of the user list: the role, eager anyway, joined instead of selected per role
+     */
+    public static final String FETCH_ROLE = "UserEntity.role";
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_seq")
+    @SequenceGenerator(name = "users_id_seq", sequenceName = "users_id_seq", allocationSize = 50)
     @Column(name = "id", unique = true, updatable = false)
     private Long id;
 
@@ -0,0 +1,6 @@
+package al.ikubinfo.registrationmanagement.exception;
+public class ExportCancelledException extends RuntimeException {
+    public ExportCancelledException(String errorMessage) {
+        super(errorMessage);
+    }
+}
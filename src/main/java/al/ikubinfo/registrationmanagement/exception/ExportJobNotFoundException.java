@@ -0,0 +1,6 @@
+package al.ikubinfo.registrationmanagement.exception;
+public class ExportJobNotFoundException extends RuntimeException {
+    public ExportJobNotFoundException(String errorMessage) {
+        super(errorMessage);
+    }
+}
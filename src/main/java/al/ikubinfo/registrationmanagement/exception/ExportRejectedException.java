@@ -0,0 +1,33 @@
+package al.ikubinfo.registrationmanagement.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+
+public class ExportRejectedException extends RuntimeException {
+    private final HttpStatus status;
+    private final Duration retryAfter;
+
+    public ExportRejectedException(String errorMessage) {
+        this(errorMessage, HttpStatus.SERVICE_UNAVAILABLE, null);
+    }
+
+    public ExportRejectedException(String errorMessage, HttpStatus status, @Nullable Duration retryAfter) {
+        super(errorMessage);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return when the client may try again, null when retrying will not help
+     */
+    @Nullable
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,6 @@
+package al.ikubinfo.registrationmanagement.exception;
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String errorMessage) {
+        super(errorMessage);
+    }
+}
@@ -0,0 +1,7 @@
+package al.ikubinfo.registrationmanagement.exception;
+
+public class InvalidImportFileException extends RuntimeException {
+    public InvalidImportFileException(String errorMessage) {
+        super(errorMessage);
+    }
+}
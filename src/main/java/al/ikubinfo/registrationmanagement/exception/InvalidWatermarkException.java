@@ -0,0 +1,6 @@
+package al.ikubinfo.registrationmanagement.exception;
+public class InvalidWatermarkException extends RuntimeException {
+    public InvalidWatermarkException(String errorMessage) {
+        super(errorMessage);
+    }
+}
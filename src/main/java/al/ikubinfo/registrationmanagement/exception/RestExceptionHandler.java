@@ -2,7 +2,9 @@ package al.ikubinfo.registrationmanagement.exception;
 
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -14,6 +16,11 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 public class RestExceptionHandler extends ResponseEntityExceptionHandler {
     private static final String COURSE_DELETED = "COURSE_DELETED";
     private static final String STUDENT_DELETED = "STUDENT_DELETED";
+    private static final String EXPORT_REJECTED = "EXPORT_REJECTED";
+    private static final String EXPORT_JOB_NOT_FOUND = "EXPORT_JOB_NOT_FOUND";
+    private static final String INVALID_WATERMARK = "INVALID_WATERMARK";
+    private static final String INVALID_CURSOR = "INVALID_CURSOR";
+    private static final String INVALID_IMPORT_FILE = "INVALID_IMPORT_FILE";
 
     @ResponseStatus(HttpStatus.NOT_FOUND)
     @ExceptionHandler(CourseDeletedException.class)
@@ -31,6 +38,45 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         return new ErrorResponse(STUDENT_DELETED, "This student has been deleted");
     }
 
+    @ExceptionHandler(ExportRejectedException.class)
+    @ResponseBody
+    public ResponseEntity<ErrorResponse> handleExportRejected(final ExportRejectedException ex) {
+        log.warn(EXPORT_REJECTED + ": " + ex.getMessage());
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(ex.getStatus());
+        if (ex.getRetryAfter() != null) {
+            response.header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfter().getSeconds()));
+        }
+        return response.body(new ErrorResponse(EXPORT_REJECTED, ex.getMessage()));
+    }
+
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    @ExceptionHandler(ExportJobNotFoundException.class)
+    @ResponseBody
+    public ErrorResponse handleExportJobNotFound(final ExportJobNotFoundException ex) {
+        return new ErrorResponse(EXPORT_JOB_NOT_FOUND, ex.getMessage());
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidWatermarkException.class)
+    @ResponseBody
+    public ErrorResponse handleInvalidWatermark(final InvalidWatermarkException ex) {
+        return new ErrorResponse(INVALID_WATERMARK, ex.getMessage());
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseBody
+    public ErrorResponse handleInvalidCursor(final InvalidCursorException ex) {
+        return new ErrorResponse(INVALID_CURSOR, ex.getMessage());
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidImportFileException.class)
+    @ResponseBody
+    public ErrorResponse handleInvalidImportFile(final InvalidImportFileException ex) {
+        return new ErrorResponse(INVALID_IMPORT_FILE, ex.getMessage());
+    }
+
     @ExceptionHandler(AccessDeniedException.class)  //handle this exception
     @ResponseStatus(HttpStatus.UNAUTHORIZED)
     public String accessDenied(final AccessDeniedException ex) {
@@ -1,8 +1,47 @@
 package al.ikubinfo.registrationmanagement.repository;
 
 import al.ikubinfo.registrationmanagement.entity.BaseEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.lang.Nullable;
+
+import javax.persistence.Tuple;
 @NoRepositoryBean
-public interface BaseJpaRepository<E extends BaseEntity> extends JpaSpecificationExecutor<E>, JpaRepository<E, Long> {}
+public interface BaseJpaRepository<E extends BaseEntity> extends JpaSpecificationExecutor<E>, JpaRepository<E, Long> {
+
+    /**
+     * Page of the entities matching the specification, read without counting them. One row more than the
+     * page is fetched to tell whether a next page exists, see {@link SlicingJpaRepository}
+     *
+     * @param spec     filter, null for all entities
+     * @param pageable page and sort
+     * @return page content and whether more rows follow
+     */
+    Slice<E> findSlice(@Nullable Specification<E> spec, Pageable pageable);
+
+    /**
+     * Page of the entities matching the specification with the associations of a fetch plan loaded along.
+     * Plans reaching a collection read the page of ids first, then the entities of the page
+     *
+     * @param spec      filter, null for all entities
+     * @param pageable  page and sort
+     * @param fetchPlan name of an entity graph of the entity, null to load the associations lazily
+     * @return page content and whether more rows follow
+     */
+    Slice<E> findSlice(@Nullable Specification<E> spec, Pageable pageable, @Nullable String fetchPlan);
+
+    /**
+     * Page of the projected columns of the entities matching the specification. Each tuple holds the values
+     * of the projection selections followed by the values of the sort properties, in sort order
+     *
+     * @param spec       filter, null for all entities
+     * @param pageable   page and sort
+     * @param projection selected columns
+     * @return page rows and whether more rows follow
+     */
+    Slice<Tuple> findTuples(@Nullable Specification<E> spec, Pageable pageable, ListProjection<E, ?> projection);
+}
@@ -2,6 +2,7 @@ package al.ikubinfo.registrationmanagement.repository;
 
 import al.ikubinfo.registrationmanagement.entity.CourseUserEntity;
 import al.ikubinfo.registrationmanagement.entity.CourseUserId;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 import java.util.Optional;
@@ -9,6 +10,7 @@ import java.util.Optional;
 public interface CourseUserRepository extends BaseJpaRepository<CourseUserEntity> {
     CourseUserEntity findByIdCourseIdAndIdUserId(Long courseId, Long userId);
     List<CourseUserEntity> getByIdCourseId(Long courseId);
+    @EntityGraph(CourseUserEntity.FETCH_COURSE_AND_USER)
     List<CourseUserEntity> getCourseUserEntitiesByCourseId(Long courseId);
     List<CourseUserEntity> getCourseUserEntitiesByCourseCourseName(String courseName);
     List<CourseUserEntity> getCourseUserEntitiesByUserId(Long userId);
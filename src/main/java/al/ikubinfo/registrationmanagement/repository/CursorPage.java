@@ -0,0 +1,63 @@
+package al.ikubinfo.registrationmanagement.repository;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Page of a list together with the cursors of its neighbour pages. Pages are read as slices, without counting
+ * the matching rows, so their total only reaches one row past the page. Whether there are neighbours is the
+ * slice's answer, an empty page has neighbours without cursors
+ */
+public class CursorPage<T> extends PageImpl<T> {
+    private final boolean previous;
+    private final boolean next;
+    private final String previousCursor;
+    private final String nextCursor;
+
+    public CursorPage(List<T> content, Pageable pageable, long total, boolean previous,
+                      @Nullable String previousCursor, boolean next, @Nullable String nextCursor) {
+        super(content, pageable, total);
+        this.previous = previous;
+        this.next = next;
+        this.previousCursor = previousCursor;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @return cursor of the page before this one, null on the first page or an empty one
+     */
+    @Nullable
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    /**
+     * @return cursor of the page after this one, null on the last page or an empty one
+     */
+    @Nullable
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public boolean hasPrevious() {
+        return previous;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next;
+    }
+
+    @Override
+    public <U> CursorPage<U> map(Function<? super T, ? extends U> converter) {
+        List<U> content = getContent().stream().map(converter).collect(Collectors.toList());
+        return new CursorPage<>(content, getPageable(), getTotalElements(), previous, previousCursor, next,
+                nextCursor);
+    }
+}
@@ -0,0 +1,44 @@
+package al.ikubinfo.registrationmanagement.repository;
+
+import javax.persistence.Tuple;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Columns of a list view read straight into dtos. The rows are plain values, they never enter the persistence
+ * context.
+ *
+ * @param <E> root entity of the list query
+ * @param <D> dto of a list row
+ */
+public interface ListProjection<E, D> {
+
+    /**
+     * @param root list query root
+     * @return selected columns of the root and its to-one associations
+     */
+    List<Selection<?>> getSelections(Root<E> root);
+
+    /**
+     * @param tuple values of {@link #getSelections(Root)}, in the same order
+     * @return dto of the row
+     */
+    D toDto(Tuple tuple);
+
+    static <E, D> ListProjection<E, D> of(Function<Root<E>, List<Selection<?>>> selections,
+                                          Function<Tuple, D> mapper) {
+        return new ListProjection<>() {
+            @Override
+            public List<Selection<?>> getSelections(Root<E> root) {
+                return selections.apply(root);
+            }
+
+            @Override
+            public D toDto(Tuple tuple) {
+                return mapper.apply(tuple);
+            }
+        };
+    }
+}
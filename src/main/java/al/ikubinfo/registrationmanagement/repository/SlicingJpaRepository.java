@@ -0,0 +1,143 @@
+package al.ikubinfo.registrationmanagement.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.lang.Nullable;
+
+import javax.persistence.AttributeNode;
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.Subgraph;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.ManagedType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Repository base class of the application, adds slice and projection reads to the Spring Data
+ * implementation. A slice costs one query, where {@link #findAll(Specification, Pageable)} also counts every
+ * matching row as soon as the page is full.
+ */
+public class SlicingJpaRepository<T, I> extends SimpleJpaRepository<T, I> {
+    private final JpaEntityInformation<T, ?> entityInformation;
+    private final EntityManager entityManager;
+
+    public SlicingJpaRepository(JpaEntityInformation<T, ?> entityInformation, EntityManager entityManager) {
+        super(entityInformation, entityManager);
+        this.entityInformation = entityInformation;
+        this.entityManager = entityManager;
+    }
+
+    public Slice<T> findSlice(@Nullable Specification<T> spec, Pageable pageable) {
+        return slice(getQuery(spec, pageable), pageable);
+    }
+
+    /**
+     * Reads the slice with the associations of the named entity graph fetched along. A graph of to-one
+     * associations joins them into the page query. A graph reaching a collection would multiply the rows the
+     * page limit applies to, so the page of ids is read first and the entities of those ids are fetched
+     * with the graph in a second query.
+     */
+    public Slice<T> findSlice(@Nullable Specification<T> spec, Pageable pageable, @Nullable String fetchPlan) {
+        if (fetchPlan == null) {
+            return findSlice(spec, pageable);
+        }
+        EntityGraph<?> graph = entityManager.getEntityGraph(fetchPlan);
+        ManagedType<T> type = entityManager.getMetamodel().managedType(getDomainClass());
+        if (!fetchesCollection(graph.getAttributeNodes(), type)) {
+            TypedQuery<T> query = getQuery(spec, pageable);
+            query.setHint(EntityGraphType.FETCH.getKey(), graph);
+            return slice(query, pageable);
+        }
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object> idQuery = builder.createQuery(Object.class);
+        Root<T> root = idQuery.from(getDomainClass());
+        Predicate predicate = spec != null ? spec.toPredicate(root, idQuery, builder) : null;
+        if (predicate != null) {
+            idQuery.where(predicate);
+        }
+        idQuery.select(idPath(root)).orderBy(QueryUtils.toOrders(pageable.getSort(), root, builder));
+        Slice<Object> ids = slice(entityManager.createQuery(idQuery), pageable);
+        if (!ids.hasContent()) {
+            return new SliceImpl<>(List.of(), pageable, false);
+        }
+
+        CriteriaQuery<T> query = builder.createQuery(getDomainClass());
+        Root<T> fetchRoot = query.from(getDomainClass());
+        query.select(fetchRoot).where(idPath(fetchRoot).in(ids.getContent()));
+        List<T> rows = entityManager.createQuery(query)
+                .setHint(EntityGraphType.FETCH.getKey(), graph)
+                .getResultList();
+        // the collection join repeats an entity once per element
+        Map<Object, T> byId = new HashMap<>();
+        for (T entity : rows) {
+            byId.putIfAbsent(entityInformation.getId(entity), entity);
+        }
+        List<T> content = ids.getContent().stream().map(byId::get).collect(Collectors.toList());
+        return new SliceImpl<>(content, pageable, ids.hasNext());
+    }
+
+    public Slice<Tuple> findTuples(@Nullable Specification<T> spec, Pageable pageable,
+                                   ListProjection<T, ?> projection) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<T> root = query.from(getDomainClass());
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, builder) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        List<Order> orders = QueryUtils.toOrders(pageable.getSort(), root, builder);
+        List<Selection<?>> selections = new ArrayList<>(projection.getSelections(root));
+        orders.forEach(order -> selections.add(order.getExpression()));
+        query.multiselect(selections).orderBy(orders);
+        return slice(entityManager.createQuery(query), pageable);
+    }
+
+    private Path<?> idPath(Root<T> root) {
+        return root.get(entityInformation.getIdAttribute().getName());
+    }
+
+    private static <X> Slice<X> slice(TypedQuery<X> query, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(query.getResultList(), pageable, false);
+        }
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize() + 1);
+        List<X> rows = query.getResultList();
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    private boolean fetchesCollection(List<AttributeNode<?>> nodes, ManagedType<?> type) {
+        for (AttributeNode<?> node : nodes) {
+            if (type.getAttribute(node.getAttributeName()).isCollection()) {
+                return true;
+            }
+            for (Subgraph<?> subgraph : node.getSubgraphs().values()) {
+                ManagedType<?> subType = entityManager.getMetamodel().managedType(subgraph.getClassType());
+                if (fetchesCollection(subgraph.getAttributeNodes(), subType)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -2,10 +2,25 @@ package al.ikubinfo.registrationmanagement.repository;
 
 import al.ikubinfo.registrationmanagement.entity.UserEntity;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 @Repository
 public interface UserRepository extends BaseJpaRepository<UserEntity> {
     Optional<UserEntity> findByEmail(String email);
 
+    /**
+     * Lower cased emails of the live users among the given ones, matched case insensitively by the
+     * {@code email_key} column the database generates, which is not mapped
+     *
+     * @param emails lower cased emails
+     * @return the emails taken
+     */
+    @Query(value = "select email_key from users where deleted = false and email_key in (:emails)",
+            nativeQuery = true)
+    Set<String> findTakenEmails(@Param("emails") Collection<String> emails);
+
 }
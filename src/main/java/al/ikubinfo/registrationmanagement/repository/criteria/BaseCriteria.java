@@ -9,4 +9,9 @@ public class BaseCriteria {
     private int pageSize = 10;
     private String sortDirection = Sort.Direction.DESC.name();
     private String orderBy = "id";
+    /**
+     * Continuation token of a neighbour page. When set the list seeks past the row encoded in it, in the sort
+     * encoded in it, instead of skipping {@code pageNumber} pages, so every page costs the same as the first
+     */
+    private String cursor;
 }
@@ -0,0 +1,28 @@
+package al.ikubinfo.registrationmanagement.repository.criteria;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+/**
+ * Position in a keyset paged list: the sort of the list and the sort key values of the row next to which the
+ * page starts. Passed around as an opaque token, see {@link BaseCriteria#getCursor()}
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageCursor {
+    private String orderBy;
+    private Sort.Direction direction;
+    /**
+     * Whether the page ends before the row instead of starting after it
+     */
+    private boolean backward;
+    /**
+     * Values of the sort keys of the row, the order by attribute followed by the id attributes
+     */
+    private List<Object> values;
+}
@@ -1,6 +1,7 @@
 package al.ikubinfo.registrationmanagement.repository.specification;
 
 import al.ikubinfo.registrationmanagement.entity.CourseEntity;
+import al.ikubinfo.registrationmanagement.entity.CourseUserEntity;
 import al.ikubinfo.registrationmanagement.repository.criteria.CourseCriteria;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Component;
@@ -11,13 +12,24 @@ public class CourseSpecification extends SpecificationBuilder<CourseEntity, Cour
         Specification<CourseEntity> specification = Specification.where(null);
 
         if (criteria.getCourseName() != null) {
-            specification = specification.and(likeUpperSpecification("courseName", criteria.getCourseName()));
+            specification = specification.and(searchSpecification("courseName", criteria.getCourseName()));
         }
         if (criteria.getStatus() != null) {
             specification = specification.and(equalsSpecification("status", criteria.getStatus()));
         }
+        specification = specification.and(rangeSpecification("registrationStartDate",
+                criteria.getRegistrationStartPeriod(), criteria.getRegistrationEndPeriod()));
+
+        // courses with one enrolment matching all the student conditions
+        Specification<CourseUserEntity> enrolment = Specification.where(null);
         if (criteria.getStudentName() != null) {
-            specification = specification.and(likeUpperSpecification("courseUsers.user.firstName", criteria.getStudentName()));
+            enrolment = enrolment.and(searchSpecification("user.firstName", criteria.getStudentName()));
+        }
+        if (criteria.getStudentStatus() != null) {
+            enrolment = enrolment.and(equalsSpecification("status", criteria.getStudentStatus()));
+        }
+        if (criteria.getStudentName() != null || criteria.getStudentStatus() != null) {
+            specification = specification.and(existsSpecification(CourseUserEntity.class, "course", enrolment));
         }
         return specification;
     }
@@ -5,8 +5,15 @@ import al.ikubinfo.registrationmanagement.entity.CourseUserEntity;
 import al.ikubinfo.registrationmanagement.repository.criteria.CourseUserCriteria;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Component;
+
+import java.util.List;
 @Component
 public class CourseUserSpecification extends SpecificationBuilder<CourseUserEntity, CourseUserCriteria> {
+    @Override
+    public List<String> getKeyAttributes() {
+        return List.of("id.courseId", "id.userId");
+    }
+
     @Override
     public Specification<CourseUserEntity> filter(CourseUserCriteria criteria) {
         Specification<CourseUserEntity> specification = Specification.where((null));
@@ -15,24 +22,13 @@ public class CourseUserSpecification extends SpecificationBuilder<CourseUserEnti
             specification = specification.and(equalsSpecification("status", criteria.getStatus()));
         }
         if (criteria.getCourseName() != null && !criteria.getCourseName().isEmpty()) {
-            specification = specification.and((root, query, builder) ->
-                    builder.like(builder.upper(root.get("course").get("courseName")), wrapLikeQuery(criteria.getCourseName())));
+            specification = specification.and(searchSpecification("course.courseName", criteria.getCourseName()));
         }
         if (criteria.getFirstName() != null && !criteria.getFirstName().isEmpty()) {
-            specification = specification.and((root, query, builder) ->
-                    builder.like(builder.upper(root.get("user").get("firstName")), wrapLikeQuery(criteria.getFirstName())));
-        }
-        if (criteria.getCourseStartDateFrom() != null && criteria.getCourseStartDateTo() != null) {
-            specification = specification.and((root, query, builder) ->
-                    builder.between(root.get("course").get("courseStartDate"), criteria.getCourseStartDateFrom(),
-                            criteria.getCourseStartDateTo()));
-        } else if (criteria.getCourseStartDateFrom() != null) {
-            specification = specification.and((root, query, builder) ->
-                    builder.greaterThanOrEqualTo(root.get("course").get("courseStartDate"), criteria.getCourseStartDateFrom()));
-        } else if (criteria.getCourseStartDateTo() != null) {
-            specification = specification.and((root, query, builder) ->
-                    builder.lessThanOrEqualTo(root.get("course").get("courseEndDate"), criteria.getCourseStartDateTo()));
+            specification = specification.and(searchSpecification("user.firstName", criteria.getFirstName()));
         }
+        specification = specification.and(rangeSpecification("course.courseStartDate",
+                criteria.getCourseStartDateFrom(), criteria.getCourseStartDateTo()));
         return specification;
     }
 }
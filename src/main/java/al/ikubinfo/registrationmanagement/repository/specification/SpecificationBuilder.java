@@ -1,19 +1,262 @@
 package al.ikubinfo.registrationmanagement.repository.specification;
 
 import al.ikubinfo.registrationmanagement.entity.BaseEntity;
+import al.ikubinfo.registrationmanagement.exception.InvalidCursorException;
 import al.ikubinfo.registrationmanagement.repository.criteria.BaseCriteria;
+import al.ikubinfo.registrationmanagement.repository.criteria.PageCursor;
+import al.ikubinfo.registrationmanagement.service.SearchIndexService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.Nullable;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import javax.persistence.metamodel.SingularAttribute;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 public abstract class SpecificationBuilder<E extends BaseEntity, C extends BaseCriteria> {
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private SearchIndexService searchIndex;
+
     public abstract Specification<E> filter(C criteria);
-    protected <T> Specification<E> equalsSpecification(String fieldName, T value) {
-        return (root, query, builder) -> builder.equal(root.get(fieldName), value);
+
+    /**
+     * @param fieldName attribute, dot separated through to-one associations
+     */
+    protected static <X, T> Specification<X> equalsSpecification(String fieldName, T value) {
+        return (root, query, builder) -> builder.equal(path(root, fieldName), value);
     }
-    protected Specification<E> likeUpperSpecification(String fieldName, String value) {
+
+    /**
+     * @param fieldName attribute, dot separated through to-one associations
+     */
+    protected static <X> Specification<X> likeUpperSpecification(String fieldName, String value) {
         return (root, query, builder) ->
-                builder.like(builder.upper(root.get(fieldName)), wrapLikeQuery(value));
+                builder.like(builder.upper(path(root, fieldName).as(String.class)), wrapLikeQuery(value));
     }
-    protected String wrapLikeQuery(String txt) {
+
+    /**
+     * Substring filter on a name kept in the search index. The text is resolved to the ids of the matching
+     * rows in memory and the filter becomes an {@code id in (...)}, a primary key or foreign key seek instead
+     * of a scan of the {@code like}. The result is only as fresh as the index: the like kept on the few rows
+     * left drops rows renamed since they were indexed, but a row the index missed, written by another
+     * instance or by a bulk or native statement, is not found until the scheduled rebuild. Falls back to the
+     * plain like when the index cannot narrow the search, and for text with like wildcards, which the index
+     * takes literally
+     *
+     * @param fieldName attribute, dot separated through to-one associations
+     */
+    protected <X> Specification<X> searchSpecification(String fieldName, String value) {
+        Specification<X> like = likeUpperSpecification(fieldName, value);
+        if (value.indexOf('%') >= 0 || value.indexOf('_') >= 0) {
+            return like;
+        }
+        int separator = fieldName.lastIndexOf('.');
+        String owner = separator < 0 ? null : fieldName.substring(0, separator);
+        String attribute = fieldName.substring(separator + 1);
+        return (root, query, builder) -> {
+            Path<?> entity = owner == null ? root : path(root, owner);
+            @SuppressWarnings("unchecked")
+            Set<Long> ids = searchIndex.search((Class<? extends BaseEntity>) entity.getJavaType(), attribute, value);
+            if (ids == null) {
+                return like.toPredicate(root, query, builder);
+            }
+            if (ids.isEmpty()) {
+                return builder.disjunction();
+            }
+            return builder.and(entity.get("id").in(ids), like.toPredicate(root, query, builder));
+        };
+    }
+
+    /**
+     * Range over the bare column, so an index on it can serve the filter: {@code between} with both bounds,
+     * a single comparison with one of them
+     *
+     * @param fieldName attribute, dot separated through to-one associations
+     * @param from      inclusive lower bound, null for none
+     * @param to        inclusive upper bound, null for none
+     * @return range filter, null without bounds
+     */
+    @Nullable
+    protected static <X, Y extends Comparable<? super Y>> Specification<X> rangeSpecification(String fieldName,
+                                                                                            @Nullable Y from,
+                                                                                            @Nullable Y to) {
+        if (from == null && to == null) {
+            return null;
+        }
+        return (root, query, builder) -> {
+            Path<Y> path = path(root, fieldName);
+            if (from != null && to != null) {
+                return builder.between(path, from, to);
+            }
+            return from != null ? builder.greaterThanOrEqualTo(path, from) : builder.lessThanOrEqualTo(path, to);
+        };
+    }
+
+    /**
+     * Rows with at least one related entity matching the filter, as a correlated {@code exists} subquery.
+     * Filtering a to-many association this way neither repeats the rows nor needs a distinct, and the
+     * subquery can seek on an index of the association column.
+     *
+     * @param type      entity on the many side of the association
+     * @param reference attribute of the many side pointing back at the filtered entity
+     * @param filter    conditions on the related entity, all met by the same related row
+     * @return exists filter
+     */
+    protected static <X, S> Specification<X> existsSpecification(Class<S> type, String reference,
+                                                                 Specification<S> filter) {
+        return (root, query, builder) -> {
+            Subquery<Integer> subquery = query.subquery(Integer.class);
+            Root<S> related = subquery.from(type);
+            Predicate correlation = builder.equal(related.get(reference), root);
+            Predicate predicate = filter.toPredicate(related, query, builder);
+            subquery.select(builder.literal(1))
+                    .where(predicate != null ? builder.and(correlation, predicate) : correlation);
+            return builder.exists(subquery);
+        };
+    }
+
+    protected static String wrapLikeQuery(String txt) {
         return "%" + txt.toUpperCase() + '%';
     }
 
+    /**
+     * Attributes that identify a row, appended to every sort so rows with the same order by value keep a
+     * stable order
+     *
+     * @return attribute paths, dot separated
+     */
+    public List<String> getKeyAttributes() {
+        return List.of("id");
+    }
+
+    /**
+     * The order by attribute followed by the key attributes it does not already cover. Ordering by the
+     * whole composite id orders by its parts
+     *
+     * @param orderBy order by attribute, null to order by the key only
+     * @return attribute paths of the full sort
+     */
+    public List<String> getSortKeys(@Nullable String orderBy) {
+        Set<String> keys = new LinkedHashSet<>();
+        List<String> keyAttributes = getKeyAttributes();
+        if (orderBy != null && keyAttributes.stream().noneMatch(key -> key.startsWith(orderBy + "."))) {
+            keys.add(orderBy);
+        }
+        keys.addAll(keyAttributes);
+        return new ArrayList<>(keys);
+    }
+
+    /**
+     * Rows after the cursor in the cursor sort, or before it for a backward cursor. Expanded into
+     * {@code k1 > v1 or (k1 = v1 and k2 > v2) ...} since JPA has no row value comparison. Nulls sort above
+     * every value, as both databases order them, so a nullable key compares with {@code is null} branches
+     *
+     * @param cursor position to seek from
+     * @param keys   sort keys of the cursor, see {@link #getSortKeys(String)}
+     * @return seek predicate
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Specification<E> seek(PageCursor cursor, List<String> keys) {
+        if (cursor.getValues() == null || cursor.getValues().size() != keys.size()) {
+            throw new InvalidCursorException("The cursor does not match the sort of the list");
+        }
+        boolean above = cursor.getDirection().isAscending() != cursor.isBackward();
+        return (root, query, builder) -> {
+            List<Predicate> alternatives = new ArrayList<>(keys.size());
+            List<Predicate> equalPrefix = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                Path<Comparable> path = path(root, keys.get(i));
+                Comparable value = objectMapper.convertValue(cursor.getValues().get(i), path.getJavaType());
+                Predicate beyond = beyond(builder, path, value, above);
+                if (beyond != null) {
+                    List<Predicate> alternative = new ArrayList<>(equalPrefix);
+                    alternative.add(beyond);
+                    alternatives.add(builder.and(alternative.toArray(new Predicate[0])));
+                }
+                equalPrefix.add(value != null ? builder.equal(path, value) : builder.isNull(path));
+            }
+            return builder.or(alternatives.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Rows past the value on one sort key, above it or below it. Nulls are above every value, so they are
+     * past any value going up and nothing is past a null
+     *
+     * @return comparison, null when no row is past the value
+     */
+    @Nullable
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate beyond(CriteriaBuilder builder, Path<Comparable> path, @Nullable Comparable value,
+                                    boolean above) {
+        boolean nullable = !(path.getModel() instanceof SingularAttribute)
+                || ((SingularAttribute<?, ?>) path.getModel()).isOptional();
+        if (value == null) {
+            return above ? null : builder.isNotNull(path);
+        }
+        if (!above) {
+            return builder.lessThan(path, value);
+        }
+        Predicate greater = builder.greaterThan(path, value);
+        return nullable ? builder.or(greater, builder.isNull(path)) : greater;
+    }
+
+    /**
+     * Values of the sort keys in the given entity
+     */
+    public List<Object> getSortValues(E row, List<String> keys) {
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(row);
+        List<Object> values = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            values.add(wrapper.getPropertyValue(key));
+        }
+        return values;
+    }
+
+    /**
+     * Cursor of a row with the given sort values, null values included
+     */
+    public String encodeCursor(List<Object> values, String orderBy, Sort.Direction direction, boolean backward) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(new PageCursor(orderBy, direction, backward, values));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write the cursor of the values " + values, e);
+        }
+    }
+
+    public PageCursor decodeCursor(String token) {
+        try {
+            PageCursor cursor = objectMapper.readValue(Base64.getUrlDecoder().decode(token), PageCursor.class);
+            if (cursor.getOrderBy() == null || cursor.getDirection() == null) {
+                throw new InvalidCursorException("Incomplete cursor " + token);
+            }
+            return cursor;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidCursorException("Malformed cursor " + token);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <Y> Path<Y> path(Path<?> root, String attribute) {
+        Path<?> path = root;
+        for (String name : attribute.split("\\.")) {
+            path = path.get(name);
+        }
+        return (Path<Y>) path;
+    }
 }
@@ -1,5 +1,6 @@
 package al.ikubinfo.registrationmanagement.repository.specification;
 
+import al.ikubinfo.registrationmanagement.entity.CourseUserEntity;
 import al.ikubinfo.registrationmanagement.entity.UserEntity;
 import al.ikubinfo.registrationmanagement.repository.criteria.UserCriteria;
 import org.springframework.data.jpa.domain.Specification;
@@ -11,16 +12,23 @@ public class UserSpecification extends SpecificationBuilder<UserEntity, UserCrit
         Specification<UserEntity> specification = Specification.where(null);
 
         if (criteria.getFirstName() != null && !criteria.getFirstName().isEmpty()) {
-            specification = specification.and(likeUpperSpecification("firstName", criteria.getFirstName()));
+            specification = specification.and(searchSpecification("firstName", criteria.getFirstName()));
         }
         if (criteria.getLastName() != null && !criteria.getLastName().isEmpty()) {
-            specification = specification.and(likeUpperSpecification("lastName", criteria.getLastName()));
+            specification = specification.and(searchSpecification("lastName", criteria.getLastName()));
         }
-        if (criteria.getStatus() != null && !criteria.getStatus().getDisplayValue().isEmpty()) {
-            specification = specification.and(equalsSpecification("status", criteria.getStatus()));
+
+        // status and course belong to the enrolments, users with one enrolment matching both
+        boolean hasStatus = criteria.getStatus() != null && !criteria.getStatus().getDisplayValue().isEmpty();
+        Specification<CourseUserEntity> enrolment = Specification.where(null);
+        if (hasStatus) {
+            enrolment = enrolment.and(equalsSpecification("status", criteria.getStatus()));
         }
         if (criteria.getCourse() != null) {
-            specification = specification.and(equalsSpecification("course", criteria.getCourse()));
+            enrolment = enrolment.and(equalsSpecification("id.courseId", criteria.getCourse()));
+        }
+        if (hasStatus || criteria.getCourse() != null) {
+            specification = specification.and(existsSpecification(CourseUserEntity.class, "user", enrolment));
         }
         return specification;
     }
@@ -0,0 +1,36 @@
+package al.ikubinfo.registrationmanagement.service;
+
+import al.ikubinfo.registrationmanagement.dto.searchDtos.SuggestionDto;
+
+import java.util.List;
+
+public interface AutocompleteService {
+
+    /**
+     * Courses with the name or a word of it starting with the prefix, the most enrolled first. Read from an
+     * in-memory prefix index, built on first use and then kept up to date by the committed changes. Nothing
+     * is suggested before two characters are typed
+     *
+     * @param prefix typed text
+     * @param limit  most suggestions returned
+     * @return suggestions
+     */
+    List<SuggestionDto> suggestCourses(String prefix, int limit);
+
+    /**
+     * Students with the name, a word of it or the email starting with the prefix, the most recently changed
+     * first. Nothing is suggested before two characters are typed
+     *
+     * @param prefix     typed text
+     * @param limit      most suggestions returned
+     * @param unassigned only the students not enrolled in any course
+     * @return suggestions
+     */
+    List<SuggestionDto> suggestStudents(String prefix, int limit, boolean unassigned);
+
+    /**
+     * Builds the indexes again, correcting the drift left by bulk and native statements that bypass the
+     * entity listeners
+     */
+    void rebuild();
+}
@@ -2,10 +2,11 @@ package al.ikubinfo.registrationmanagement.service;
 
 import al.ikubinfo.registrationmanagement.dto.courseDtos.CourseDto;
 import al.ikubinfo.registrationmanagement.dto.courseDtos.NewCourseDto;
+import al.ikubinfo.registrationmanagement.dto.courseDtos.SimplifiedCourseDto;
 import al.ikubinfo.registrationmanagement.dto.courseDtos.UpdateCourseDto;
 import al.ikubinfo.registrationmanagement.dto.courseUserDtos.SimplifiedCourseUserDto;
+import al.ikubinfo.registrationmanagement.repository.CursorPage;
 import al.ikubinfo.registrationmanagement.repository.criteria.CourseCriteria;
-import org.springframework.data.domain.Page;
 
 import java.util.List;
 
@@ -17,7 +18,15 @@ public interface CourseService {
      * @param criteria CourseCriteria
      * @return CourseDto
      */
-    Page<CourseDto> filterCourses(CourseCriteria criteria);
+    CursorPage<CourseDto> filterCourses(CourseCriteria criteria);
+
+    /**
+     * Get the course list page, read as the listed columns only, without loading the courses
+     *
+     * @param criteria CourseCriteria
+     * @return CursorPage<SimplifiedCourseDto>
+     */
+    CursorPage<SimplifiedCourseDto> listCourses(CourseCriteria criteria);
 
     /**
      * Retrieve course details
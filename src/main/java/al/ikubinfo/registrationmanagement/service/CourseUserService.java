@@ -2,14 +2,18 @@ package al.ikubinfo.registrationmanagement.service;
 
 import al.ikubinfo.registrationmanagement.dto.courseUserDtos.CourseUserDto;
 import al.ikubinfo.registrationmanagement.dto.courseUserDtos.CourseUserListDto;
+import al.ikubinfo.registrationmanagement.repository.CursorPage;
 import al.ikubinfo.registrationmanagement.repository.criteria.CourseUserCriteria;
-import org.springframework.data.domain.Page;
+import al.ikubinfo.registrationmanagement.service.export.ExportWatermark;
+import org.springframework.lang.Nullable;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface CourseUserService {
 
-    Page<CourseUserListDto> getCourseUserList(CourseUserCriteria criteria);
+    CursorPage<CourseUserListDto> getCourseUserList(CourseUserCriteria criteria);
 
     List<CourseUserListDto> getCourseUserListByCourseId(Long courseId);
 
@@ -23,5 +27,16 @@ public interface CourseUserService {
 
     CourseUserDto getCourseUserEntity(Long courseId, Long userId);
 
+    /**
+     * Writes the enrolments changed on or after the watermark as csv into the stream: an UPSERT row for
+     * every enrolment whose own, user or course data changed and a DELETE tombstone, carrying only the
+     * keys, for every enrolment removed. Without a watermark all current enrolments are written as
+     * UPSERT rows. The stream is not closed.
+     *
+     * @param since watermark of the previous delta, null for a full load
+     * @param output target stream
+     */
+    void writeDeltaCsv(@Nullable ExportWatermark since, OutputStream output) throws IOException;
+
 
 }
@@ -0,0 +1,21 @@
+package al.ikubinfo.registrationmanagement.service;
+
+import al.ikubinfo.registrationmanagement.entity.BaseEntity;
+
+public interface EntityCounterService {
+
+    /**
+     * Number of live, not soft deleted, rows of the entity. Read from memory: the total is counted once and
+     * then moved by the committed inserts, deletes and restores of the entity
+     *
+     * @param entityType counted entity
+     * @return live rows
+     */
+    long getCount(Class<? extends BaseEntity> entityType);
+
+    /**
+     * Counts every entity counted so far again, correcting the drift left by bulk and native statements that
+     * bypass the entity listeners
+     */
+    void reconcile();
+}
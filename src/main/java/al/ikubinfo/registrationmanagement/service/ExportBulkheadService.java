@@ -0,0 +1,36 @@
+package al.ikubinfo.registrationmanagement.service;
+
+import al.ikubinfo.registrationmanagement.repository.criteria.BaseCriteria;
+import al.ikubinfo.registrationmanagement.service.export.ExportFormat;
+import al.ikubinfo.registrationmanagement.service.export.ExportPermit;
+import org.springframework.lang.Nullable;
+
+public interface ExportBulkheadService {
+
+    /**
+     * Admit an export served on a request thread. The export memory is estimated from a count of the
+     * criteria result and reserved against the shared budget, then the call waits for one of the export
+     * slots
+     *
+     * @param service  service producing the rows
+     * @param criteria filter, null to export everything
+     * @param format   export file format
+     * @param buffered whether the whole file is built in memory before it is sent
+     * @return ExportPermit to close once the export is written
+     * @throws al.ikubinfo.registrationmanagement.exception.ExportRejectedException when the memory budget
+     *         is exhausted, the wait queue is full or no slot frees up in time
+     */
+    <C extends BaseCriteria> ExportPermit acquire(ServiceTemplate<C, ?, ?, ?> service, @Nullable C criteria,
+                                                  ExportFormat format, boolean buffered);
+
+    /**
+     * Same as {@link #acquire(ServiceTemplate, BaseCriteria, ExportFormat, boolean)} for an export whose
+     * row count is already known
+     *
+     * @param format   export file format
+     * @param rows     number of exported rows
+     * @param buffered whether the whole file is built in memory before it is sent
+     * @return ExportPermit to close once the export is written
+     */
+    ExportPermit acquire(ExportFormat format, long rows, boolean buffered);
+}
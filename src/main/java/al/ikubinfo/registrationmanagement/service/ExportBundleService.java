@@ -0,0 +1,25 @@
+package al.ikubinfo.registrationmanagement.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportBundleService {
+
+    /**
+     * Writes the users, courses and enrolments as csv files of one zip archive into the stream. Every
+     * file is streamed into the archive as its rows are read, nothing is staged in memory or on disk. The
+     * stream is not closed
+     *
+     * @param output target stream
+     */
+    void writeCsvBundle(OutputStream output) throws IOException;
+
+    /**
+     * Writes a workbook with a sheet of the courses and a sheet of their rosters, the students of each course
+     * grouped under a course title row. Both sheets are filled from a single ordered query over the courses,
+     * their enrolments and users, streamed row by row. The stream is not closed
+     *
+     * @param output target stream
+     */
+    void writeCourseRosterWorkbook(OutputStream output) throws IOException;
+}
@@ -0,0 +1,48 @@
+package al.ikubinfo.registrationmanagement.service;
+
+import al.ikubinfo.registrationmanagement.repository.criteria.BaseCriteria;
+import al.ikubinfo.registrationmanagement.service.export.ExportFormat;
+import al.ikubinfo.registrationmanagement.service.export.ExportJob;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface ExportJobService {
+
+    /**
+     * Queue a background export of the criteria data
+     *
+     * @param service  service producing the rows
+     * @param criteria filter, null to export everything
+     * @param format   export file format
+     * @return ExportJob the queued job
+     */
+    <C extends BaseCriteria> ExportJob submit(ServiceTemplate<C, ?, ?, ?> service, C criteria, ExportFormat format);
+
+    /**
+     * Retrieve a job
+     *
+     * @param jobId job id
+     * @return ExportJob
+     */
+    ExportJob getJob(String jobId);
+
+    /**
+     * Cancel a queued or running job. Finished jobs are left untouched
+     *
+     * @param jobId job id
+     * @return ExportJob
+     */
+    ExportJob cancel(String jobId);
+
+    /**
+     * Subscribe to the progress events of a job. The emitter completes when the job finishes
+     *
+     * @param jobId job id
+     * @return SseEmitter
+     */
+    SseEmitter subscribe(String jobId);
+
+    /**
+     * Remove finished jobs older than the configured time to live together with their files
+     */
+    void removeExpiredJobs();
+}
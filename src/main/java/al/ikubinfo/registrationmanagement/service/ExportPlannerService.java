@@ -0,0 +1,22 @@
+package al.ikubinfo.registrationmanagement.service;
+
+import al.ikubinfo.registrationmanagement.repository.criteria.BaseCriteria;
+import al.ikubinfo.registrationmanagement.service.export.ExportFormat;
+import al.ikubinfo.registrationmanagement.service.export.ExportPlan;
+import org.springframework.lang.Nullable;
+
+public interface ExportPlannerService {
+
+    /**
+     * Count the criteria result and pick how the export is produced: small results are built in memory,
+     * medium ones streamed and large ones handed to a background job. The thresholds are configured per
+     * format
+     *
+     * @param service  service producing the rows
+     * @param criteria filter, null to export everything
+     * @param format   export file format
+     * @return ExportPlan
+     */
+    <C extends BaseCriteria> ExportPlan plan(ServiceTemplate<C, ?, ?, ?> service, @Nullable C criteria,
+                                             ExportFormat format);
+}
@@ -0,0 +1,30 @@
+package al.ikubinfo.registrationmanagement.service;
+
+import al.ikubinfo.registrationmanagement.repository.criteria.BaseCriteria;
+import al.ikubinfo.registrationmanagement.service.export.ExportFormat;
+import al.ikubinfo.registrationmanagement.service.export.ExportSnapshot;
+import org.springframework.lang.Nullable;
+
+public interface ExportSnapshotService {
+
+    /**
+     * Retrieve the snapshot of an export. Snapshots are keyed by entity type, format and the criteria
+     * without paging and sorting. A missing snapshot or one whose source tables changed since it was
+     * generated is generated in the background for the next request
+     *
+     * @param service  service producing the rows
+     * @param criteria filter, null to export everything
+     * @param format   export file format
+     * @return ExportSnapshot, null when there is no up to date one yet
+     */
+    @Nullable
+    <C extends BaseCriteria> ExportSnapshot findSnapshot(ServiceTemplate<C, ?, ?, ?> service, @Nullable C criteria,
+                                                         ExportFormat format);
+
+    /**
+     * Regenerate the full exports configured to be kept warm and remove the snapshots that were not
+     * downloaded within the configured time to live. Snapshots of filtered exports are only regenerated
+     * when they are asked for again
+     */
+    void refreshSnapshots();
+}
@@ -0,0 +1,28 @@
+package al.ikubinfo.registrationmanagement.service;
+
+import al.ikubinfo.registrationmanagement.entity.BaseEntity;
+import org.springframework.lang.Nullable;
+
+import java.util.Set;
+
+public interface SearchIndexService {
+
+    /**
+     * Ids of the live rows whose attribute contains the text, ignoring case. Read from an in-memory trigram
+     * index, built on first use and then kept up to date by the committed changes of the entity
+     *
+     * @param entityType searched entity
+     * @param attribute  searched attribute of the entity
+     * @param text       searched text
+     * @return matching ids, null when the index cannot narrow the search: the attribute is not indexed, the
+     * text is shorter than a trigram or it matches more than {@code search.max-candidates} rows
+     */
+    @Nullable
+    Set<Long> search(Class<? extends BaseEntity> entityType, String attribute, String text);
+
+    /**
+     * Builds every index built so far again, correcting the drift left by bulk and native statements that
+     * bypass the entity listeners
+     */
+    void rebuild();
+}
@@ -2,180 +2,657 @@ package al.ikubinfo.registrationmanagement.service;
 
 import al.ikubinfo.registrationmanagement.entity.BaseEntity;
 import al.ikubinfo.registrationmanagement.repository.BaseJpaRepository;
+import al.ikubinfo.registrationmanagement.repository.CursorPage;
+import al.ikubinfo.registrationmanagement.repository.ListProjection;
 import al.ikubinfo.registrationmanagement.repository.criteria.BaseCriteria;
+import al.ikubinfo.registrationmanagement.repository.criteria.PageCursor;
 import al.ikubinfo.registrationmanagement.repository.specification.SpecificationBuilder;
-import al.ikubinfo.registrationmanagement.service.export.CustomDataTable;
-import be.quodlibet.boxable.BaseTable;
-import com.opencsv.CSVWriter;
+import al.ikubinfo.registrationmanagement.service.export.CsvRowSink;
+import al.ikubinfo.registrationmanagement.service.export.ExcelRowSink;
+import al.ikubinfo.registrationmanagement.service.export.ExportChunkPool;
+import al.ikubinfo.registrationmanagement.service.export.ExportFormat;
+import al.ikubinfo.registrationmanagement.service.export.ExportProgress;
+import al.ikubinfo.registrationmanagement.service.export.ExportProjection;
+import al.ikubinfo.registrationmanagement.service.export.ExportRowSink;
+import al.ikubinfo.registrationmanagement.service.export.PagedPdfTable;
+import al.ikubinfo.registrationmanagement.service.export.ParallelPdfWriter;
+import al.ikubinfo.registrationmanagement.service.export.PdfRowSink;
+import al.ikubinfo.registrationmanagement.service.export.PdfRowWriter;
+import al.ikubinfo.registrationmanagement.service.export.RowBuffer;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
-
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
-
-import static com.opencsv.ICSVParser.DEFAULT_ESCAPE_CHARACTER;
-import static com.opencsv.ICSVParser.DEFAULT_SEPARATOR;
-import static com.opencsv.ICSVWriter.DEFAULT_LINE_END;
-import static com.opencsv.ICSVWriter.NO_QUOTE_CHARACTER;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public abstract class ServiceTemplate<
         C extends BaseCriteria,
         E extends BaseEntity,
         R extends BaseJpaRepository<E>,
         S extends SpecificationBuilder<E, C>> {
+    /**
+     * Widest column excel accepts, in characters
+     */
+    private static final int MAX_COLUMN_WIDTH = 255;
+
     protected final R repository;
 
     protected final S specificationBuilder;
 
+    protected final Class<E> entityClass;
+
+    @PersistenceContext
+    protected EntityManager entityManager;
+
+    @Autowired
+    private ExportChunkPool chunkPool;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Rows fetched per cursor round trip, also the interval at which the persistence context is cleared
+     */
+    @Value("${export.fetch-size:500}")
+    private int exportFetchSize;
+
+    @Value("${export.excel.row-window:100}")
+    private int excelRowWindow;
+
+    @Value("${export.excel.width-sample-size:200}")
+    private int excelWidthSampleSize;
+
+    @Value("${export.pdf.width-sample-size:200}")
+    private int pdfWidthSampleSize;
+
+    @Value("${export.pdf.rows-per-batch:200}")
+    private int pdfRowsPerBatch;
+
+    @Value("${export.pdf.parallel.enabled:false}")
+    private boolean pdfParallel;
 
+    @Value("${export.pdf.parallel.pages-per-part:20}")
+    private int pdfPagesPerPart;
+
+    /**
+     * Width of the id ranges a parallel export is split into
+     */
+    @Value("${export.parallel.chunk-size:10000}")
+    private long chunkSize;
+
+    @SuppressWarnings("unchecked")
     protected ServiceTemplate(@NonNull R repository,
                               @NonNull S specificationBuilder) {
         this.repository = repository;
         this.specificationBuilder = specificationBuilder;
+        this.entityClass = (Class<E>) Objects.requireNonNull(GenericTypeResolver
+                .resolveTypeArguments(ClassUtils.getUserClass(getClass()), ServiceTemplate.class))[1];
     }
 
-    public byte[] createPdf(C criteria) {
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
+    /**
+     * Writes the criteria data in the given format into the stream, reporting every written row to the
+     * progress listener. The stream is not closed.
+     *
+     * @param format   export file format
+     * @param criteria filter, null to export everything
+     * @param output   target stream
+     * @param progress notified after each row, may abort the export by throwing
+     */
+    @Transactional(readOnly = true)
+    public void write(ExportFormat format, @Nullable C criteria, OutputStream output, ExportProgress progress)
+            throws IOException {
+        switch (format) {
+            case CSV:
+                writeCsv(criteria, output, progress);
+                break;
+            case EXCEL:
+                writeExcel(criteria, output, progress);
+                break;
+            case PDF:
+                writePdf(criteria, output, progress);
+                break;
+        }
+    }
+
+    public Class<E> getEntityClass() {
+        return entityClass;
+    }
 
-        List<String[]> entries = new ArrayList<>();
-        entries.add(getHeaders());
-        getExportList(criteria).forEach(entity -> entries.add(populate(entity)));
+    /**
+     * Entities whose tables the export reads, through its selections or the criteria joins. A change in
+     * any of them makes the export snapshots of this service stale
+     *
+     * @return entity types
+     */
+    public Set<Class<? extends BaseEntity>> getExportSources() {
+        return Collections.singleton(entityClass);
+    }
 
-        PDDocument doc = new PDDocument();
-        PDPage page = new PDPage();
-        float columnWidth = (1 / (10 * 2.54f) * 72 * 50);
-        float width;
-        if (getHeaders().length < 7) width = columnWidth * 7;
-        else width = columnWidth * getHeaders().length + columnWidth;
-        page.setMediaBox(new PDRectangle(width, PDRectangle.A4.getWidth()));
-        doc.addPage(page);
-        //Initialize table
-        float margin = 10;
-        float tableWidth = page.getMediaBox().getWidth() - (2 * margin);
-        float yStartNewPage = page.getMediaBox().getHeight() - (2 * margin);
-        float yStart = yStartNewPage;
-        float bottomMargin = 20;
+    /**
+     * Counts the rows an export of the criteria would contain, to estimate its cost before running it
+     *
+     * @param criteria filter, null to export everything
+     * @return number of rows
+     */
+    @Transactional(readOnly = true)
+    public long countExportRows(@Nullable C criteria) {
+        return criteria != null
+                ? repository.count(specificationBuilder.filter(criteria))
+                : repository.count();
+    }
 
+    @Transactional(readOnly = true)
+    public byte[] createPdf(@Nullable C criteria) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
         try {
-            BaseTable dataTable = new BaseTable(yStart, yStartNewPage, bottomMargin, tableWidth,
-                    margin, doc, page, true, true);
-            CustomDataTable customDataTable = new CustomDataTable(dataTable, page);
-
-            customDataTable.addDataToTable(entries, true);
-            dataTable.draw();
-            doc.save(output);
-            doc.close();
+            writePdf(criteria, output);
         } catch (IOException e) {
-            e.getStackTrace();
             throw new RuntimeException("Cant create Pdf");
         }
-
         return output.toByteArray();
     }
 
-    public byte[] createCsv(@Nullable C criteria) {
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        List<String[]> entries = new ArrayList<>();
-        entries.add(getHeaders());
-        getExportList(criteria).forEach(entity -> entries.add(populate(entity)));
+    /**
+     * Writes the criteria data as pdf into the given stream. The document buffers its content in a temp
+     * file instead of the heap, column widths are measured on the first {@code export.pdf.width-sample-size}
+     * rows and the table is laid out {@code export.pdf.rows-per-batch} rows at a time. The stream is not closed.
+     *
+     * @param criteria filter, null to export everything
+     * @param output   target stream
+     */
+    @Transactional(readOnly = true)
+    public void writePdf(@Nullable C criteria, OutputStream output) throws IOException {
+        writePdf(criteria, output, ExportProgress.NONE);
+    }
 
-        OutputStreamWriter outputStreamWriter =
-                new OutputStreamWriter(Objects.requireNonNull(stream), StandardCharsets.UTF_8);
-        try (CSVWriter writer = new CSVWriter(outputStreamWriter,
-                DEFAULT_SEPARATOR,
-                NO_QUOTE_CHARACTER,
-                DEFAULT_ESCAPE_CHARACTER,
-                DEFAULT_LINE_END)) {
+    /**
+     * With {@code export.pdf.parallel.enabled} and a parallel {@link ExportChunkPool} the pages are laid out
+     * in parts of {@code export.pdf.parallel.pages-per-part} pages on the pool and merged afterwards
+     */
+    protected void writePdf(@Nullable C criteria, OutputStream output, ExportProgress progress) throws IOException {
+        String[] headers = getHeaders();
+        float columnWidth = (1 / (10 * 2.54f) * 72 * 50);
+        float width;
+        if (headers.length < 7) width = columnWidth * 7;
+        else width = columnWidth * headers.length + columnWidth;
+        PDRectangle mediaBox = new PDRectangle(width, PDRectangle.A4.getWidth());
+
+        if (pdfParallel && chunkPool.getParallelism() > 1) {
+            try (ParallelPdfWriter writer = new ParallelPdfWriter(chunkPool, mediaBox, headers, pdfWidthSampleSize,
+                    pdfRowsPerBatch, pdfPagesPerPart)) {
+                forEachPdfRow(criteria, progress, writer, headers.length);
+                writer.finish(output);
+            }
+        } else {
+            try (PDDocument doc = new PDDocument(MemoryUsageSetting.setupTempFileOnly())) {
+                PDPage page = new PDPage(mediaBox);
+                doc.addPage(page);
+
+                PagedPdfTable table = new PagedPdfTable(doc, page, headers, pdfWidthSampleSize, pdfRowsPerBatch);
+                forEachPdfRow(criteria, progress, table, headers.length);
+                table.finish();
+                doc.save(output);
+            }
+        }
+        output.flush();
+    }
 
-            writer.writeAll(entries);
-            outputStreamWriter.flush();
+    private void forEachPdfRow(@Nullable C criteria, ExportProgress progress, PdfRowWriter writer, int columns)
+            throws IOException {
+        try {
+            forEachExportRow(criteria, progress, new PdfRowSink(writer, columns));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
+    @Transactional(readOnly = true)
+    public byte[] createCsv(@Nullable C criteria) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try {
+            writeCsv(criteria, stream);
         } catch (IOException e) {
-            e.printStackTrace();
+            throw new RuntimeException("Cant create Csv");
         }
         return stream.toByteArray();
     }
 
-    public byte[] createExcel(@Nullable C criteria) {
-
-        Workbook workbook = new XSSFWorkbook();
-        String[] headers = getHeaders();
-        CreationHelper createHelper = workbook.getCreationHelper();
-        Sheet sheet = workbook.createSheet("course sheet");
-        Font headerFont = workbook.createFont();
-        headerFont.setBold(true);
-        headerFont.setFontHeightInPoints((short) 13);
-        headerFont.setColor(IndexedColors.BLUE.getIndex());
+    /**
+     * Writes the criteria data as csv straight into the given stream. Rows are read from a forward-only
+     * cursor and written as soon as they are fetched, so memory use does not grow with the result size.
+     * The stream is flushed but not closed.
+     *
+     * @param criteria filter, null to export everything
+     * @param output   target stream
+     */
+    @Transactional(readOnly = true)
+    public void writeCsv(@Nullable C criteria, OutputStream output) throws IOException {
+        writeCsv(criteria, output, ExportProgress.NONE);
+    }
 
-        CellStyle headerCellStyle = workbook.createCellStyle();
-        headerCellStyle.setFont(headerFont);
+    protected void writeCsv(@Nullable C criteria, OutputStream output, ExportProgress progress) throws IOException {
+        BufferedWriter writer = new BufferedWriter(
+                new OutputStreamWriter(Objects.requireNonNull(output), StandardCharsets.UTF_8));
+        CsvRowSink sink = new CsvRowSink(writer);
+        try {
+            sink.row(getHeaders());
+            forEachExportRow(criteria, progress, sink);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
 
-        headerCellStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        headerCellStyle.setFillForegroundColor(IndexedColors.YELLOW.getIndex());
+    @Transactional(readOnly = true)
+    public byte[] createExcel(@Nullable C criteria) {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try {
+            writeExcel(criteria, byteArrayOutputStream);
+        } catch (IOException e) {
+            throw new RuntimeException("Cant create Excel");
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
 
-        Row headerRow = sheet.createRow(0);
+    /**
+     * Writes the criteria data as xlsx straight into the given stream. Only the last
+     * {@code export.excel.row-window} rows are kept in memory, older ones are flushed to a compressed
+     * temp file. Column widths are measured on the first {@code export.excel.width-sample-size} rows
+     * instead of auto sizing the whole sheet. The stream is not closed.
+     *
+     * @param criteria filter, null to export everything
+     * @param output   target stream
+     */
+    @Transactional(readOnly = true)
+    public void writeExcel(@Nullable C criteria, OutputStream output) throws IOException {
+        writeExcel(criteria, output, ExportProgress.NONE);
+    }
 
-        for (int i = 0; i < headers.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(headers[i]);
-            cell.getCellStyle().setAlignment(HorizontalAlignment.CENTER);
-            cell.setCellStyle(headerCellStyle);
+    protected void writeExcel(@Nullable C criteria, OutputStream output, ExportProgress progress) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(null, excelRowWindow, true, false);
+        try {
+            String[] headers = getHeaders();
+            Sheet sheet = workbook.createSheet("course sheet");
+            Font headerFont = workbook.createFont();
+            headerFont.setBold(true);
+            headerFont.setFontHeightInPoints((short) 13);
+            headerFont.setColor(IndexedColors.BLUE.getIndex());
+
+            CellStyle headerCellStyle = workbook.createCellStyle();
+            headerCellStyle.setFont(headerFont);
+            headerCellStyle.setAlignment(HorizontalAlignment.CENTER);
+            headerCellStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            headerCellStyle.setFillForegroundColor(IndexedColors.YELLOW.getIndex());
+
+            // header font is larger and bold, give it some extra room
+            int[] columnWidths = new int[headers.length];
+            Row headerRow = sheet.createRow(0);
+            for (int i = 0; i < headers.length; i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(headers[i]);
+                cell.setCellStyle(headerCellStyle);
+                columnWidths[i] = headers[i].length() + 4;
+            }
+
+            forEachExportRow(criteria, progress, new ExcelRowSink(sheet, 1, columnWidths, excelWidthSampleSize));
+
+            for (int i = 0; i < columnWidths.length; i++) {
+                sheet.setColumnWidth(i, Math.min(columnWidths[i] + 2, MAX_COLUMN_WIDTH) * 256);
+            }
+            workbook.write(output);
+            output.flush();
+        } finally {
+            workbook.dispose();
+            workbook.close();
         }
+    }
 
-        CellStyle dateCellStyle = workbook.createCellStyle();
-        dateCellStyle.setDataFormat(createHelper.createDataFormat().getFormat("dd-MM-yyyy"));
+    /**
+     * Reads a page of the rows matching the criteria. With a {@link BaseCriteria#getCursor() cursor} the page
+     * is sought from the row encoded in it, otherwise page {@code pageNumber} is read with an offset. Either
+     * way the sort is completed with the key attributes, so rows with equal order by values keep their order
+     * between pages, and the page carries the cursors of its neighbours.
+     *
+     * @param criteria filter, paging and sort
+     * @return page of entities
+     */
+    protected CursorPage<E> findPage(C criteria) {
+        return findPage(criteria, null);
+    }
 
-        int rowNum = 1;
+    /**
+     * Reads a page like {@link #findPage(BaseCriteria)}, loading the associations of the fetch plan along
+     *
+     * @param criteria  filter, paging and sort
+     * @param fetchPlan entity graph of the associations the page is converted with, null to load them lazily
+     * @return page of entities
+     */
+    protected CursorPage<E> findPage(C criteria, @Nullable String fetchPlan) {
+        return findPage(criteria, (filter, pageable) -> repository.findSlice(filter, pageable, fetchPlan),
+                specificationBuilder::getSortValues);
+    }
 
-        for (E entity : getExportList(criteria)) {
-            Row row = sheet.createRow(rowNum++);
-            String[] fields = populate(entity);
-            for (int i = 0; i < fields.length; i++)
-                row.createCell(i).setCellValue(fields[i]);
+    /**
+     * Reads a page like {@link #findPage(BaseCriteria)} as projected columns, mapped to dtos without loading
+     * any entity
+     *
+     * @param criteria   filter, paging and sort
+     * @param projection columns of the list and their dto
+     * @return page of dtos
+     */
+    protected <D> CursorPage<D> findProjectedPage(C criteria, ListProjection<E, D> projection) {
+        return findPage(criteria, (filter, pageable) -> repository.findTuples(filter, pageable, projection),
+                (tuple, keys) -> {
+                    List<Object> values = Arrays.asList(tuple.toArray());
+                    return values.subList(values.size() - keys.size(), values.size());
+                })
+                .map(projection::toDto);
+    }
+
+    private <R> CursorPage<R> findPage(C criteria, BiFunction<Specification<E>, Pageable, Slice<R>> reader,
+                                       BiFunction<R, List<String>, List<Object>> sortValues) {
+        PageCursor cursor = StringUtils.hasText(criteria.getCursor())
+                ? specificationBuilder.decodeCursor(criteria.getCursor())
+                : null;
+        String orderBy = cursor != null ? cursor.getOrderBy() : criteria.getOrderBy();
+        Sort.Direction direction = cursor != null
+                ? cursor.getDirection()
+                : Sort.Direction.valueOf(criteria.getSortDirection());
+        List<String> keys = specificationBuilder.getSortKeys(orderBy);
+        Sort sort = Sort.by(direction, keys.toArray(new String[0]));
+        Specification<E> filter = specificationBuilder.filter(criteria);
+        int pageSize = criteria.getPageSize();
+
+        if (cursor == null) {
+            Slice<R> slice = reader.apply(filter, PageRequest.of(criteria.getPageNumber(), pageSize, sort));
+            return toCursorPage(slice, false, orderBy, direction, keys, sortValues, slice.hasPrevious(),
+                    slice.hasNext());
         }
 
-        for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
+        boolean backward = cursor.isBackward();
+        Sort seekSort = backward ? Sort.by(reverse(direction), keys.toArray(new String[0])) : sort;
+        Slice<R> slice = reader.apply(filter.and(specificationBuilder.seek(cursor, keys)),
+                PageRequest.of(0, pageSize, seekSort));
+        return toCursorPage(slice, backward, orderBy, direction, keys, sortValues, !backward || slice.hasNext(),
+                backward || slice.hasNext());
+    }
+
+    /**
+     * Page of the slice rows in list order, a backward slice was read in reverse. The total only reaches one
+     * row past the page, headline counts come from the {@link EntityCounterService}
+     */
+    private <R> CursorPage<R> toCursorPage(Slice<R> slice, boolean backward, String orderBy,
+                                           Sort.Direction direction, List<String> keys,
+                                           BiFunction<R, List<String>, List<Object>> sortValues,
+                                           boolean hasPrevious, boolean hasNext) {
+        List<R> rows = new ArrayList<>(slice.getContent());
+        if (backward) {
+            Collections.reverse(rows);
         }
+        String previous = null;
+        String next = null;
+        if (!rows.isEmpty()) {
+            List<Object> first = sortValues.apply(rows.get(0), keys);
+            List<Object> last = sortValues.apply(rows.get(rows.size() - 1), keys);
+            previous = hasPrevious ? specificationBuilder.encodeCursor(first, orderBy, direction, true) : null;
+            next = hasNext ? specificationBuilder.encodeCursor(last, orderBy, direction, false) : null;
+        }
+        Pageable pageable = PageRequest.of(slice.getNumber(), slice.getSize(),
+                Sort.by(direction, keys.toArray(new String[0])));
+        long total = pageable.getOffset() + rows.size() + (slice.hasNext() ? 1 : 0);
+        return new CursorPage<>(rows, pageable, total, hasPrevious, previous, hasNext, next);
+    }
 
-        ByteArrayOutputStream byteArrayOutputStream;
+    private static Sort.Direction reverse(Sort.Direction direction) {
+        return direction.isAscending() ? Sort.Direction.DESC : Sort.Direction.ASC;
+    }
 
-        try {
-            byteArrayOutputStream = new ByteArrayOutputStream();
-            workbook.write(byteArrayOutputStream);
+    public abstract String[] getHeaders();
 
-            byteArrayOutputStream.close();
-        } catch (Exception e) {
-            throw new RuntimeException("Cant create Excel");
+    /**
+     * Pushes the export cells of the entity into the sink, in header order. Used when the service declares
+     * no {@link #getExportProjection() export projection}.
+     *
+     * @param entity exported entity
+     * @param row    receives the cells of the row
+     */
+    protected abstract void writeRow(E entity, ExportRowSink row);
+
+    /**
+     * Columns of the export as a tuple projection over the root entity and its associations, with the writer
+     * of their rows. Services declaring one are exported from flat rows read in a single query. By default
+     * the export hydrates entities and uses {@link #writeRow(BaseEntity, ExportRowSink)}.
+     *
+     * @return export projection, empty to export entities
+     */
+    protected Optional<ExportProjection<E>> getExportProjection() {
+        return Optional.empty();
+    }
+
+    /**
+     * Numeric attribute the parallel export splits the result on, the entity id by default
+     *
+     * @param root export query root
+     * @return chunking key
+     */
+    protected Path<Long> getChunkAttribute(Root<E> root) {
+        return root.get("id");
+    }
+
+    /**
+     * Writes the rows matching the criteria into the sink, from the export projection when the service
+     * declares one and from entities otherwise. With {@code export.parallel.parallelism} above 1 and a
+     * result spanning several {@code export.parallel.chunk-size} id ranges, the ranges are fetched and
+     * formatted concurrently and written in id order. Must be called inside a transaction.
+     *
+     * @param criteria filter, null to export everything
+     * @param progress notified after each row
+     * @param sink     receives the rows
+     */
+    protected void forEachExportRow(@Nullable C criteria, ExportProgress progress, ExportRowSink sink) {
+        List<IdRange> chunks = chunkPool.getParallelism() > 1
+                ? getChunks(criteria)
+                : Collections.emptyList();
+        if (chunks.size() > 1) {
+            forEachExportRowParallel(criteria, chunks, progress, sink);
+        } else {
+            forEachExportRow(criteria, null, progress, sink);
         }
+    }
 
-        return byteArrayOutputStream.toByteArray();
+    /**
+     * Streams the entities matching the criteria through the given action. The query runs on a scrollable
+     * cursor and the persistence context is cleared every {@code export.fetch-size} rows, so already
+     * processed entities can be garbage collected. Must be called inside a transaction.
+     *
+     * @param criteria filter, null to export everything
+     * @param progress notified after each entity
+     * @param action   called once per entity, in cursor order
+     */
+    protected void forEachExportEntity(@Nullable C criteria, ExportProgress progress, Consumer<E> action) {
+        forEachExportEntity(criteria, null, progress, action);
+    }
+
+    private void forEachExportRow(@Nullable C criteria, @Nullable IdRange range, ExportProgress progress,
+                                  ExportRowSink sink) {
+        Optional<ExportProjection<E>> projection = getExportProjection();
+        if (projection.isEmpty()) {
+            forEachExportEntity(criteria, range, progress, entity -> {
+                writeRow(entity, sink);
+                sink.endRow();
+            });
+            return;
+        }
 
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<E> root = query.from(entityClass);
+        query.multiselect(projection.get().getSelections(root));
+        applyCriteria(criteria, range, root, query, builder);
+        forEachResult(entityManager.createQuery(query), progress, tuple -> {
+            projection.get().writeRow(tuple, sink);
+            sink.endRow();
+        });
     }
 
-    public abstract String[] getHeaders();
+    private void forEachExportEntity(@Nullable C criteria, @Nullable IdRange range, ExportProgress progress,
+                                     Consumer<E> action) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<E> query = builder.createQuery(entityClass);
+        Root<E> root = query.from(entityClass);
+        query.select(root);
+        applyCriteria(criteria, range, root, query, builder);
+        forEachResult(entityManager.createQuery(query), progress, action);
+    }
 
-    public abstract String[] populate(E entity);
+    /**
+     * Fetches and formats the chunks on the {@link ExportChunkPool}, each in its own read-only transaction
+     * and persistence context, and replays them into the sink in chunk order. At most twice the pool
+     * parallelism chunks are buffered at a time. The chunks are separate transactions, so rows changed
+     * while the export runs may be seen in one chunk and not in another.
+     */
+    private void forEachExportRowParallel(@Nullable C criteria, List<IdRange> chunks, ExportProgress progress,
+                                          ExportRowSink sink) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        int window = chunkPool.getParallelism() * 2;
+        Deque<ForkJoinTask<RowBuffer>> pending = new ArrayDeque<>(window);
+        Iterator<IdRange> next = chunks.iterator();
+        try {
+            while (next.hasNext() || !pending.isEmpty()) {
+                while (next.hasNext() && pending.size() < window) {
+                    IdRange chunk = next.next();
+                    pending.add(chunkPool.submit(() -> transaction.execute(status -> {
+                        RowBuffer buffer = new RowBuffer();
+                        forEachExportRow(criteria, chunk, ExportProgress.NONE, buffer);
+                        return buffer;
+                    })));
+                }
+                pending.removeFirst().join().replay(sink, progress);
+            }
+        } finally {
+            pending.forEach(task -> task.cancel(false));
+        }
+    }
 
-    protected List<E> getExportList(@Nullable C criteria) {
+    private List<IdRange> getChunks(@Nullable C criteria) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<E> root = query.from(entityClass);
+        Path<Long> key = getChunkAttribute(root);
+        query.multiselect(builder.min(key), builder.max(key));
+        applyCriteria(criteria, null, root, query, builder);
+
+        Tuple bounds = entityManager.createQuery(query).getSingleResult();
+        Long min = bounds.get(0, Long.class);
+        Long max = bounds.get(1, Long.class);
+        if (min == null || max == null) {
+            return Collections.emptyList();
+        }
+        List<IdRange> chunks = new ArrayList<>();
+        for (long from = min; from <= max; from += chunkSize) {
+            chunks.add(new IdRange(from, Math.min(max, from + chunkSize - 1)));
+        }
+        return chunks;
+    }
+
+    private void applyCriteria(@Nullable C criteria, @Nullable IdRange range, Root<E> root, CriteriaQuery<?> query,
+                               CriteriaBuilder builder) {
+        List<Predicate> predicates = new ArrayList<>(2);
         if (criteria != null) {
-            criteria.setOrderBy(null);
-            criteria.setSortDirection(null);
+            Predicate predicate = specificationBuilder.filter(criteria).toPredicate(root, query, builder);
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+        if (range != null) {
+            Path<Long> key = getChunkAttribute(root);
+            predicates.add(builder.between(key, range.from, range.to));
+            query.orderBy(builder.asc(key));
+        }
+        if (!predicates.isEmpty()) {
+            query.where(predicates.toArray(new Predicate[0]));
         }
+    }
 
-        return (criteria != null)
-                ? repository.findAll(specificationBuilder.filter(criteria))
-                : repository.findAll();
+    private <T> void forEachResult(TypedQuery<T> query, ExportProgress progress, Consumer<T> action) {
+        try (Stream<T> stream = query
+                .setHint(QueryHints.FETCH_SIZE, exportFetchSize)
+                .setHint(QueryHints.READ_ONLY, true)
+                .getResultStream()) {
+            Iterator<T> iterator = stream.iterator();
+            int rows = 0;
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
+                progress.rowWritten();
+                if (++rows % exportFetchSize == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
 
+    /**
+     * Inclusive range of chunking key values
+     */
+    private static final class IdRange {
+        private final long from;
+        private final long to;
+
+        private IdRange(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
     }
 }
@@ -0,0 +1,20 @@
+package al.ikubinfo.registrationmanagement.service;
+
+import al.ikubinfo.registrationmanagement.dto.importDtos.ImportReportDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface UserImportService {
+
+    /**
+     * Imports students from a csv file with a header row and the columns of the user csv export: first
+     * name, last name, email, phone number, reach form, optionally followed by the birth date as yyyy-MM-dd.
+     * Rows that are invalid or whose email is already taken, in the file or in the database, are skipped
+     * and reported, the others are imported
+     *
+     * @param csv utf-8 csv, read as a stream
+     * @return imported rows and the error of every skipped row
+     */
+    ImportReportDto importStudents(InputStream csv) throws IOException;
+}
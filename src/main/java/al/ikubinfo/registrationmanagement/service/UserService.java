@@ -2,10 +2,11 @@ package al.ikubinfo.registrationmanagement.service;
 
 import al.ikubinfo.registrationmanagement.dto.authDtos.PasswordDto;
 import al.ikubinfo.registrationmanagement.dto.userDtos.NewUserDto;
+import al.ikubinfo.registrationmanagement.dto.userDtos.SimplifiedUserDto;
 import al.ikubinfo.registrationmanagement.dto.userDtos.UpdateUserDto;
 import al.ikubinfo.registrationmanagement.dto.userDtos.UserDto;
+import al.ikubinfo.registrationmanagement.repository.CursorPage;
 import al.ikubinfo.registrationmanagement.repository.criteria.UserCriteria;
-import org.springframework.data.domain.Page;
 
 import java.util.List;
 
@@ -15,9 +16,17 @@ public interface UserService {
      * Get all users. if criteria is applied, users are filter accordingly
      *
      * @param criteria UserCriteria
-     * @return Page<UserDto>
+     * @return CursorPage<UserDto>
      */
-    Page<UserDto> filterUsers(UserCriteria criteria);
+    CursorPage<UserDto> filterUsers(UserCriteria criteria);
+
+    /**
+     * Get the user list page, read as the listed columns only, without loading the users
+     *
+     * @param criteria UserCriteria
+     * @return CursorPage<SimplifiedUserDto>
+     */
+    CursorPage<SimplifiedUserDto> listUsers(UserCriteria criteria);
 
 
     /**
@@ -0,0 +1,121 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
+
+/**
+ * Writes rows as unquoted csv, producing the same output as an opencsv {@code CSVWriter} configured with
+ * {@code ','}, no quote character, {@code '\'} as escape character and {@code '\n'} as line end. Numbers and
+ * dates are rendered into a reused buffer, so writing a row does not allocate.
+ */
+public class CsvRowSink implements ExportRowSink {
+    private static final char SEPARATOR = ',';
+    private static final char ESCAPE = '\\';
+    private static final char LINE_END = '\n';
+
+    private final Writer writer;
+    private final StringBuilder scratch = new StringBuilder(32);
+    private char[] scratchChars = new char[32];
+    private boolean firstCell = true;
+
+    public CsvRowSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Writes the given values as a whole row
+     */
+    public void row(String... values) {
+        for (String value : values) {
+            string(value);
+        }
+        endRow();
+    }
+
+    @Override
+    public void string(@Nullable String value) {
+        try {
+            startCell();
+            if (value == null) {
+                return;
+            }
+            int length = value.length();
+            int start = 0;
+            for (int i = 0; i < length; i++) {
+                if (needsEscape(value.charAt(i))) {
+                    writer.write(value, start, i - start);
+                    writer.write(ESCAPE);
+                    start = i;
+                }
+            }
+            writer.write(value, start, length - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void number(double value) {
+        scratch.setLength(0);
+        scratch.append(value);
+        writeScratch();
+    }
+
+    @Override
+    public void date(@Nullable LocalDate value, ExportDateFormat format) {
+        if (value == null) {
+            string(null);
+            return;
+        }
+        scratch.setLength(0);
+        format.appendTo(value, scratch);
+        writeScratch();
+    }
+
+    @Override
+    public void enumValue(@Nullable Enum<?> value) {
+        string(value == null ? null : value.name());
+    }
+
+    @Override
+    public void endRow() {
+        try {
+            writer.write(LINE_END);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        firstCell = true;
+    }
+
+    private void startCell() throws IOException {
+        if (!firstCell) {
+            writer.write(SEPARATOR);
+        }
+        firstCell = false;
+    }
+
+    /**
+     * Numbers and dates never contain characters that need escaping
+     */
+    private void writeScratch() {
+        int length = scratch.length();
+        if (scratchChars.length < length) {
+            scratchChars = new char[length];
+        }
+        scratch.getChars(0, length, scratchChars, 0);
+        try {
+            startCell();
+            writer.write(scratchChars, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean needsEscape(char c) {
+        return c == ESCAPE || c == SEPARATOR || c == LINE_END || c == '\u0000';
+    }
+}
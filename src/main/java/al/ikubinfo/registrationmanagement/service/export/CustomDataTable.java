@@ -2,50 +2,82 @@ package al.ikubinfo.registrationmanagement.service.export;
 
 import be.quodlibet.boxable.*;
 import be.quodlibet.boxable.line.LineStyle;
-import be.quodlibet.boxable.utils.FontUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import java.awt.*;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
+/**
+ * Fills a boxable table with header and data rows styled after two template cells. The templates only
+ * carry styles, they are built once on a dummy document and only read afterwards, so all tables share them.
+ */
 public class CustomDataTable {
+    private static final Cell HEADER_CELL_TEMPLATE;
+    private static final Cell DATA_CELL_TEMPLATE;
+    private static final float HEADER_CELL_HEIGHT;
+    private static final float DATA_CELL_HEIGHT;
+
+    static {
+        try (PDDocument ddoc = new PDDocument()) {
+            PDPage dpage = new PDPage();
+            ddoc.addPage(dpage);
+            BaseTable dummyTable = new BaseTable(10f, 10f, 10f, dpage.getMediaBox().getWidth(),
+                    10f, ddoc, dpage, false, false);
+            Row dr = dummyTable.createRow(0f);
+            HEADER_CELL_TEMPLATE = dr.createCell(10f, "A", HorizontalAlignment.CENTER, VerticalAlignment.MIDDLE);
+            DATA_CELL_TEMPLATE = dr.createCell(10f, "A", HorizontalAlignment.CENTER, VerticalAlignment.MIDDLE);
+            setDefaultStyles(HEADER_CELL_TEMPLATE);
+            HEADER_CELL_HEIGHT = HEADER_CELL_TEMPLATE.getCellHeight();
+            DATA_CELL_HEIGHT = DATA_CELL_TEMPLATE.getCellHeight();
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private Table table;
-    private final Cell headerCellTemplate;
-    private final Cell dataCellTemplate;
 
-    public CustomDataTable(Table table, PDPage page) throws IOException {
+    public CustomDataTable(Table table) {
         this.table = table;
-        // Create a dummy pdf document, page and table to create template cells
-        PDDocument ddoc = new PDDocument();
-        PDPage dpage = new PDPage();
-        dpage.setMediaBox(page.getMediaBox());
-        dpage.setRotation(page.getRotation());
-        ddoc.addPage(dpage);
-        BaseTable dummyTable = new BaseTable(10f, 10f, 10f, table.getWidth(),
-                10f, ddoc, dpage, false, false);
-        Row dr = dummyTable.createRow(0f);
-        headerCellTemplate = dr.createCell(10f, "A", HorizontalAlignment.CENTER, VerticalAlignment.MIDDLE);
-        dataCellTemplate = dr.createCell(10f, "A", HorizontalAlignment.CENTER, VerticalAlignment.MIDDLE);
-        setDefaultStyles();
-        ddoc.close();
     }
 
     public void addDataToTable(List<String[]> data, Boolean hasHeader) {
-        List<Float> textWidths = new ArrayList<>(Collections.nCopies(20, 0f));
-        List<Float> colWidths = new ArrayList<>(Collections.nCopies(20, 0f));
+        float[] colWidths = computeColumnWidths(data);
+
         for (String[] line : data) {
 
-            //1
+            if (hasHeader) {
+                addHeaderRow(line, colWidths, true);
+                hasHeader = false;
+            } else {
+                addRow(line, colWidths);
+            }
+        }
+    }
+
+    /**
+     * Measures the text of the given rows and splits the table width between the columns accordingly.
+     * Only the passed rows are measured, so callers can pass a bounded sample of a large data set
+     *
+     * @param sample rows to measure, usually the header and the first data rows
+     * @return column widths as percentage of the table width
+     */
+    public static float[] computeColumnWidths(List<String[]> sample) {
+        int columns = 0;
+        for (String[] line : sample) columns = Math.max(columns, line.length);
+
+        //1
+        PDFont font = HEADER_CELL_TEMPLATE.getFont();
+        float fontSize = HEADER_CELL_TEMPLATE.getFontSize();
+        float[] textWidths = new float[columns];
+        for (String[] line : sample) {
             for (int i = 0; i < line.length; i++) {
 
-                float textWidth = FontUtils.getStringWidth(headerCellTemplate.getFont(),
-                        line[i] != null ? line[i] : "", headerCellTemplate.getFontSize());
-                if (textWidths.get(i) < textWidth) {
-                    textWidths.set(i, textWidth);
+                float textWidth = PdfFontMetrics.getStringWidth(font, line[i] != null ? line[i] : "", fontSize);
+                if (textWidths[i] < textWidth) {
+                    textWidths[i] = textWidth;
                 }
             }
         }
@@ -55,40 +87,49 @@ public class CustomDataTable {
         for (float f : textWidths) totalWidth += f;
 
         //3
-        float sizeFactor = table.getWidth() / totalWidth;
-        for (int i = 0; i < textWidths.size(); i++) {
-            colWidths.set(i, textWidths.get(i) * 100 / table.getWidth() * sizeFactor);
+        float[] colWidths = new float[columns];
+        for (int i = 0; i < columns; i++) {
+            colWidths[i] = totalWidth > 0 ? textWidths[i] * 100 / totalWidth : 100f / columns;
         }
+        return colWidths;
+    }
 
+    /**
+     * Adds a header row, repeated by the table on every page break
+     *
+     * @param line        header values
+     * @param colWidths   column widths as returned by {@link #computeColumnWidths(List)}
+     * @param drawAtStart false when the table continues a previous one on the same page, so the header
+     *                    is only drawn again after a page break
+     */
+    public void addHeaderRow(String[] line, float[] colWidths, boolean drawAtStart) {
+        Row h = table.createRow(HEADER_CELL_HEIGHT);
+        for (int i = 0; i < line.length; i++) {
+            String cellValue = line[i] != null ? line[i] : "";
+            Cell c = h.createCell(colWidths[i], cellValue, HEADER_CELL_TEMPLATE.getAlign(),
+                    HEADER_CELL_TEMPLATE.getValign());
+            // Apply style of header cell to this cell
+            c.copyCellStyle(HEADER_CELL_TEMPLATE);
+            c.setText(cellValue);
+        }
+        table.addHeaderRow(h);
+        if (!drawAtStart) {
+            table.getRows().remove(h);
+        }
+    }
 
-        for (String[] line : data) {
-
-            if (hasHeader) {
-                Row h = table.createRow(headerCellTemplate.getCellHeight());
-                for (int i = 0; i < line.length; i++) {
-                    String cellValue = line[i] != null ? line[i] : "";
-                    Cell c = h.createCell(colWidths.get(i), cellValue, headerCellTemplate.getAlign(),
-                            headerCellTemplate.getValign());
-                    // Apply style of header cell to this cell
-                    c.copyCellStyle(headerCellTemplate);
-                    c.setText(cellValue);
-                }
-                table.addHeaderRow(h);
-                hasHeader = false;
-            } else {
-                Row r = table.createRow(dataCellTemplate.getCellHeight());
-                for (int i = 0; i < line.length; i++) {
-                    String cellValue = line[i] != null ? line[i] : "";
-                    Cell c = r.createCell(colWidths.get(i), cellValue, dataCellTemplate.getAlign(), dataCellTemplate.getValign());
-                    // Apply style of header cell to this cell
-                    c.copyCellStyle(dataCellTemplate);
-                    c.setText(cellValue);
-                }
-            }
+    public void addRow(String[] line, float[] colWidths) {
+        Row r = table.createRow(DATA_CELL_HEIGHT);
+        for (int i = 0; i < line.length; i++) {
+            String cellValue = line[i] != null ? line[i] : "";
+            Cell c = r.createCell(colWidths[i], cellValue, DATA_CELL_TEMPLATE.getAlign(), DATA_CELL_TEMPLATE.getValign());
+            // Apply style of header cell to this cell
+            c.copyCellStyle(DATA_CELL_TEMPLATE);
+            c.setText(cellValue);
         }
     }
 
-    private void setDefaultStyles() {
+    private static void setDefaultStyles(Cell headerCellTemplate) {
         LineStyle thinline = new LineStyle(Color.BLACK, 0.75f);
         // Header style
         headerCellTemplate.setTextColor(new Color(0, 71, 187));
@@ -97,6 +138,14 @@ public class CustomDataTable {
         headerCellTemplate.setBorderStyle(thinline);
     }
 
+    public static float getHeaderCellHeight() {
+        return HEADER_CELL_HEIGHT;
+    }
+
+    public static float getDataCellHeight() {
+        return DATA_CELL_HEIGHT;
+    }
+
     public Table getTable() {
         return table;
     }
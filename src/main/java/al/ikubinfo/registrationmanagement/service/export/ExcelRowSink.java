@@ -0,0 +1,113 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.springframework.lang.Nullable;
+
+import java.time.LocalDate;
+
+/**
+ * Writes rows into a sheet, numbers and dates as numeric cells instead of text. Column widths are measured
+ * on the first {@code widthSampleSize} rows only.
+ */
+public class ExcelRowSink implements ExportRowSink {
+    /**
+     * Days between the excel epoch (1899-12-30, accounting for the 1900 leap year bug) and 1970-01-01
+     */
+    private static final long EXCEL_EPOCH_OFFSET = 25569;
+
+    private final Sheet sheet;
+    private final int[] columnWidths;
+    private final int widthSampleSize;
+    private final CellStyle[] dateStyles;
+    private final StringBuilder scratch = new StringBuilder(32);
+    private int rowNum;
+    private Row row;
+    private int column;
+
+    /**
+     * @param sheet           target sheet
+     * @param firstRow        index of the first data row
+     * @param columnWidths    column widths in characters, widened with the sampled values
+     * @param widthSampleSize number of rows measured for the column widths
+     */
+    public ExcelRowSink(Sheet sheet, int firstRow, int[] columnWidths, int widthSampleSize) {
+        this.sheet = sheet;
+        this.rowNum = firstRow;
+        this.columnWidths = columnWidths;
+        this.widthSampleSize = firstRow + widthSampleSize;
+
+        Workbook workbook = sheet.getWorkbook();
+        ExportDateFormat[] formats = ExportDateFormat.values();
+        this.dateStyles = new CellStyle[formats.length];
+        for (ExportDateFormat format : formats) {
+            CellStyle style = workbook.createCellStyle();
+            style.setDataFormat(workbook.createDataFormat().getFormat(format.getExcelPattern()));
+            dateStyles[format.ordinal()] = style;
+        }
+    }
+
+    @Override
+    public void string(@Nullable String value) {
+        if (value != null) {
+            currentRow().createCell(column).setCellValue(value);
+            measure(value.length());
+        }
+        column++;
+    }
+
+    @Override
+    public void number(double value) {
+        currentRow().createCell(column).setCellValue(value);
+        if (isSampled()) {
+            scratch.setLength(0);
+            scratch.append(value);
+            measure(scratch.length());
+        }
+        column++;
+    }
+
+    @Override
+    public void date(@Nullable LocalDate value, ExportDateFormat format) {
+        if (value != null) {
+            Cell cell = currentRow().createCell(column);
+            cell.setCellValue((double) (value.toEpochDay() + EXCEL_EPOCH_OFFSET));
+            cell.setCellStyle(dateStyles[format.ordinal()]);
+            measure(format.getExcelPattern().length());
+        }
+        column++;
+    }
+
+    @Override
+    public void enumValue(@Nullable Enum<?> value) {
+        string(value == null ? null : value.name());
+    }
+
+    @Override
+    public void endRow() {
+        currentRow();
+        row = null;
+        rowNum++;
+        column = 0;
+    }
+
+    private Row currentRow() {
+        if (row == null) {
+            row = sheet.createRow(rowNum);
+        }
+        return row;
+    }
+
+    private boolean isSampled() {
+        return rowNum < widthSampleSize && column < columnWidths.length;
+    }
+
+    private void measure(int length) {
+        if (isSampled() && length > columnWidths[column]) {
+            columnWidths[column] = length;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Fork-join pool shared by the parallel exports. Every worker holds its own database connection while it
+ * fetches a chunk, so {@code export.parallel.parallelism} must stay below the connection pool size.
+ */
+@Component
+public class ExportChunkPool {
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    public ExportChunkPool(@Value("${export.parallel.parallelism:1}") int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        this.pool = new ForkJoinPool(this.parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("export-chunk-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * @return number of workers, 1 when exports run serially
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public <T> ForkJoinTask<T> submit(Callable<T> task) {
+        return pool.submit(task);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
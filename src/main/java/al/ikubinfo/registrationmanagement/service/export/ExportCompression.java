@@ -0,0 +1,76 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Compressed streams for exports compressed while they are written. The level trades ratio for cpu, csv
+ * compresses well already at the fastest levels.
+ */
+@Component
+public class ExportCompression {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int level;
+
+    public ExportCompression(@Value("${export.compression.level:1}") int level) {
+        this.level = level;
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header accepts gzip, either by name or through {@code *}, with a
+     * non zero quality
+     */
+    public static boolean acceptsGzip(@Nullable String acceptEncoding) {
+        if (!StringUtils.hasText(acceptEncoding)) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                continue;
+            }
+            float quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Float.parseFloat(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (quality > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gzip stream over the output. {@link GZIPOutputStream#finish()} must be called after the last byte,
+     * closing it closes the output as well
+     */
+    public GZIPOutputStream gzip(OutputStream output) throws IOException {
+        return new GZIPOutputStream(output, BUFFER_SIZE) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+
+    public ZipOutputStream zip(OutputStream output) {
+        ZipOutputStream zip = new ZipOutputStream(output);
+        zip.setLevel(level);
+        return zip;
+    }
+}
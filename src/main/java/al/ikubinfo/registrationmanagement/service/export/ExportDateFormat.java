@@ -0,0 +1,58 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import java.time.LocalDate;
+
+/**
+ * Date layouts used by the exports. Dates are appended digit by digit instead of going through a
+ * {@link java.time.format.DateTimeFormatter}, which allocates on every call.
+ */
+public enum ExportDateFormat {
+    /**
+     * yyyy-MM-dd, same as {@link LocalDate#toString()} for four digit years
+     */
+    ISO("yyyy-mm-dd"),
+    /**
+     * dd-MM-yyyy
+     */
+    DAY_MONTH_YEAR("dd-mm-yyyy");
+
+    private final String excelPattern;
+
+    ExportDateFormat(String excelPattern) {
+        this.excelPattern = excelPattern;
+    }
+
+    /**
+     * @return equivalent excel number format
+     */
+    public String getExcelPattern() {
+        return excelPattern;
+    }
+
+    public void appendTo(LocalDate date, StringBuilder out) {
+        if (this == ISO) {
+            appendPadded(out, date.getYear(), 4).append('-');
+            appendPadded(out, date.getMonthValue(), 2).append('-');
+            appendPadded(out, date.getDayOfMonth(), 2);
+        } else {
+            appendPadded(out, date.getDayOfMonth(), 2).append('-');
+            appendPadded(out, date.getMonthValue(), 2).append('-');
+            appendPadded(out, date.getYear(), 4);
+        }
+    }
+
+    public String format(LocalDate date) {
+        StringBuilder out = new StringBuilder(10);
+        appendTo(date, out);
+        return out.toString();
+    }
+
+    private static StringBuilder appendPadded(StringBuilder out, int value, int digits) {
+        for (int bound = 10; digits > 1; digits--, bound *= 10) {
+            if (value < bound) {
+                out.append('0');
+            }
+        }
+        return out.append(value);
+    }
+}
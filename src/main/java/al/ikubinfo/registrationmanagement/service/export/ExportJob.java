@@ -0,0 +1,84 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import al.ikubinfo.registrationmanagement.exception.ExportCancelledException;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * State of a background export. The job is also the progress listener of the export it runs: it counts
+ * the written rows and aborts the export once a cancellation was requested.
+ */
+@Getter
+public class ExportJob implements ExportProgress {
+    /**
+     * Rows between two progress notifications
+     */
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    private final String id;
+    private final ExportFormat format;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final Consumer<ExportJob> progressListener;
+
+    private volatile ExportJobStatus status = ExportJobStatus.QUEUED;
+    private volatile LocalDateTime finishedAt;
+    private volatile Path file;
+    private volatile String error;
+    private volatile boolean cancelRequested;
+    @Setter
+    private volatile Future<?> future;
+
+    public ExportJob(String id, ExportFormat format, Consumer<ExportJob> progressListener) {
+        this.id = id;
+        this.format = format;
+        this.progressListener = progressListener;
+    }
+
+    @Override
+    public void rowWritten() {
+        if (cancelRequested || Thread.currentThread().isInterrupted()) {
+            throw new ExportCancelledException("Export job " + id + " was cancelled");
+        }
+        if (rowsWritten.incrementAndGet() % PROGRESS_INTERVAL == 0) {
+            progressListener.accept(this);
+        }
+    }
+
+    public void requestCancel() {
+        cancelRequested = true;
+    }
+
+    public void start() {
+        status = ExportJobStatus.RUNNING;
+    }
+
+    public void complete(Path file) {
+        this.file = file;
+        finish(ExportJobStatus.COMPLETED);
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        finish(ExportJobStatus.FAILED);
+    }
+
+    public void cancelled() {
+        finish(ExportJobStatus.CANCELLED);
+    }
+
+    private void finish(ExportJobStatus status) {
+        this.finishedAt = LocalDateTime.now();
+        this.status = status;
+    }
+}
@@ -0,0 +1,23 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission of an export into the bulkhead. Closing it frees the slot and the reserved memory, closing it
+ * again has no effect.
+ */
+public class ExportPermit implements AutoCloseable {
+    private final AtomicBoolean released = new AtomicBoolean();
+    private final Runnable release;
+
+    public ExportPermit(Runnable release) {
+        this.release = release;
+    }
+
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            release.run();
+        }
+    }
+}
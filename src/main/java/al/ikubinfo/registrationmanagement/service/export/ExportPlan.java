@@ -0,0 +1,15 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class ExportPlan {
+    private final ExportFormat format;
+    private final ExportStrategy strategy;
+    /**
+     * Number of rows counted for the criteria
+     */
+    private final long rows;
+}
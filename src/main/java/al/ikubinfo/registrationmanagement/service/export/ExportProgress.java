@@ -0,0 +1,16 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+/**
+ * Notified by the export writers after every written row
+ */
+@FunctionalInterface
+public interface ExportProgress {
+    ExportProgress NONE = () -> {
+    };
+
+    /**
+     * Called after each exported row. Implementations may throw
+     * {@link al.ikubinfo.registrationmanagement.exception.ExportCancelledException} to abort the export
+     */
+    void rowWritten();
+}
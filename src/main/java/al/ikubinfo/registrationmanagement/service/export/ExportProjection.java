@@ -0,0 +1,46 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import javax.persistence.Tuple;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Columns of an export read as flat rows, without hydrating entities or lazy loading associations, and the
+ * writer turning a row of them into cells.
+ *
+ * @param <E> root entity of the export query
+ */
+public interface ExportProjection<E> {
+
+    /**
+     * @param root export query root
+     * @return selected columns of the root and its associations
+     */
+    List<Selection<?>> getSelections(Root<E> root);
+
+    /**
+     * Pushes the cells of a row into the sink, in header order
+     *
+     * @param tuple values of {@link #getSelections(Root)}, in the same order
+     * @param row   receives the cells of the row
+     */
+    void writeRow(Tuple tuple, ExportRowSink row);
+
+    static <E> ExportProjection<E> of(Function<Root<E>, List<Selection<?>>> selections,
+                                      BiConsumer<Tuple, ExportRowSink> writer) {
+        return new ExportProjection<>() {
+            @Override
+            public List<Selection<?>> getSelections(Root<E> root) {
+                return selections.apply(root);
+            }
+
+            @Override
+            public void writeRow(Tuple tuple, ExportRowSink row) {
+                writer.accept(tuple, row);
+            }
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import org.springframework.lang.Nullable;
+
+import java.time.LocalDate;
+
+/**
+ * Receives the cells of the exported rows in header order. Each export format encodes the typed values
+ * straight into its output, so services push values instead of building a {@code String[]} per row.
+ */
+public interface ExportRowSink {
+    /**
+     * @param value cell text, null for an empty cell
+     */
+    void string(@Nullable String value);
+
+    void number(double value);
+
+    /**
+     * @param value  cell date, null for an empty cell
+     * @param format how the date is rendered
+     */
+    void date(@Nullable LocalDate value, ExportDateFormat format);
+
+    /**
+     * @param value written by name, null for an empty cell
+     */
+    void enumValue(@Nullable Enum<?> value);
+
+    /**
+     * Closes the current row. Called by the export writers after each row
+     */
+    void endRow();
+}
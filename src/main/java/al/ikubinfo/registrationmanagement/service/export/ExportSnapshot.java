@@ -0,0 +1,25 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * A pre-generated export file. The file is never rewritten, a newer snapshot of the same export gets a
+ * file of its own.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ExportSnapshot {
+    private final ExportFormat format;
+    private final Path file;
+    private final long size;
+    /**
+     * Versions of the source tables the snapshot was generated from
+     */
+    private final String tableVersions;
+    private final String etag;
+    private final Instant createdAt;
+}
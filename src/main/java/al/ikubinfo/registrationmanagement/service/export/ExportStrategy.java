@@ -0,0 +1,19 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+/**
+ * How an export is produced, picked by the export planner from the size of the result
+ */
+public enum ExportStrategy {
+    /**
+     * Built in memory and sent with a content length
+     */
+    IN_MEMORY,
+    /**
+     * Written to the response while the rows are read
+     */
+    STREAMING,
+    /**
+     * Handed to a background export job
+     */
+    ASYNC
+}
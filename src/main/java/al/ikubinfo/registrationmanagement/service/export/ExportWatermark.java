@@ -0,0 +1,47 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import al.ikubinfo.registrationmanagement.exception.InvalidWatermarkException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Point a delta export starts from, handed to clients as an opaque token. Modified dates are kept per day,
+ * so a delta contains every row modified on or after the watermark day and the next delta repeats the rows
+ * of the day it was taken on. Consumers apply the rows by key, so receiving a row twice is harmless.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ExportWatermark {
+    private static final String VERSION = "v1:";
+
+    private final LocalDate since;
+
+    /**
+     * Watermark of a delta taken now, read before the delta so rows changed while it runs are repeated
+     */
+    public static ExportWatermark now() {
+        return new ExportWatermark(LocalDate.now());
+    }
+
+    public static ExportWatermark parse(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!value.startsWith(VERSION)) {
+                throw new InvalidWatermarkException("Unknown watermark " + token);
+            }
+            return new ExportWatermark(LocalDate.parse(value.substring(VERSION.length())));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidWatermarkException("Malformed watermark " + token);
+        }
+    }
+
+    public String toToken() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((VERSION + since).getBytes(StandardCharsets.UTF_8));
+    }
+}
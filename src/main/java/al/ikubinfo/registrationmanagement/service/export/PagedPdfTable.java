@@ -0,0 +1,98 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import be.quodlibet.boxable.BaseTable;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lays out a table of unknown length in batches. Column widths are measured once on the first rows, then
+ * every batch is drawn as its own boxable table continuing where the previous one stopped, so only the
+ * {@code Row}/{@code Cell} objects of one batch are alive at a time.
+ */
+public class PagedPdfTable implements PdfRowWriter {
+    private static final float MARGIN = 10;
+    private static final float BOTTOM_MARGIN = 20;
+
+    private final PDDocument document;
+    private final String[] headers;
+    private final int widthSampleSize;
+    private final int rowsPerBatch;
+    private final float tableWidth;
+    private final float yStartNewPage;
+    private final List<String[]> pending = new ArrayList<>();
+
+    private PDPage page;
+    private float yStart;
+    private float[] columnWidths;
+    private boolean headerDrawn;
+
+    public PagedPdfTable(PDDocument document, PDPage page, String[] headers, int widthSampleSize, int rowsPerBatch) {
+        this.document = document;
+        this.page = page;
+        this.headers = headers;
+        this.widthSampleSize = Math.max(1, widthSampleSize);
+        this.rowsPerBatch = Math.max(1, rowsPerBatch);
+        this.tableWidth = page.getMediaBox().getWidth() - (2 * MARGIN);
+        this.yStartNewPage = page.getMediaBox().getHeight() - (2 * MARGIN);
+        this.yStart = yStartNewPage;
+    }
+
+    /**
+     * Table whose column widths were already measured, by {@link CustomDataTable#computeColumnWidths(List)}
+     */
+    public PagedPdfTable(PDDocument document, PDPage page, String[] headers, float[] columnWidths, int rowsPerBatch) {
+        this(document, page, headers, 1, rowsPerBatch);
+        this.columnWidths = columnWidths;
+    }
+
+    /**
+     * Rows of one text line that fit on a page of the given size below the header
+     */
+    public static int rowsPerPage(PDRectangle mediaBox) {
+        float height = mediaBox.getHeight() - 2 * MARGIN - BOTTOM_MARGIN - CustomDataTable.getHeaderCellHeight();
+        return Math.max(1, (int) (height / CustomDataTable.getDataCellHeight()));
+    }
+
+    @Override
+    public void addRow(String[] row) throws IOException {
+        pending.add(row);
+        if (pending.size() >= (columnWidths == null ? widthSampleSize : rowsPerBatch)) {
+            flush();
+        }
+    }
+
+    /**
+     * Draws the remaining rows. Must be called once after the last row, before the document is saved
+     */
+    public void finish() throws IOException {
+        if (!pending.isEmpty() || !headerDrawn) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        BaseTable table = new BaseTable(yStart, yStartNewPage, BOTTOM_MARGIN, tableWidth, MARGIN,
+                document, page, true, true);
+        CustomDataTable dataTable = new CustomDataTable(table);
+        if (columnWidths == null) {
+            List<String[]> sample = new ArrayList<>(pending.size() + 1);
+            sample.add(headers);
+            sample.addAll(pending);
+            columnWidths = CustomDataTable.computeColumnWidths(sample);
+        }
+
+        dataTable.addHeaderRow(headers, columnWidths, !headerDrawn);
+        for (String[] row : pending) {
+            dataTable.addRow(row, columnWidths);
+        }
+        yStart = table.draw();
+        page = table.getCurrentPage();
+        headerDrawn = true;
+        pending.clear();
+    }
+}
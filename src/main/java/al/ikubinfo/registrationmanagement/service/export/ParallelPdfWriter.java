@@ -0,0 +1,159 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Lays out a pdf export in parts on the {@link ExportChunkPool}. Rows are collected into parts of a fixed
+ * number of full pages, every part is drawn as a document of its own into a temp file, with the column
+ * widths measured on the first rows and the header repeated on each page, and the parts are merged in
+ * order once the last row arrived. At most twice the pool parallelism parts are pending at a time. An
+ * export that fits in one part is drawn straight into the output.
+ */
+@Slf4j
+public class ParallelPdfWriter implements PdfRowWriter, AutoCloseable {
+    private final ExportChunkPool pool;
+    private final PDRectangle mediaBox;
+    private final String[] headers;
+    private final int widthSampleSize;
+    private final int rowsPerBatch;
+    private final int rowsPerPart;
+    private final Deque<ForkJoinTask<Path>> pending = new ArrayDeque<>();
+    private final List<Path> parts = new ArrayList<>();
+    /**
+     * Every part file created so far, deleted once the export is merged or aborted
+     */
+    private final Set<Path> files = ConcurrentHashMap.newKeySet();
+
+    private List<String[]> rows = new ArrayList<>();
+    private float[] columnWidths;
+    private volatile boolean closed;
+
+    public ParallelPdfWriter(ExportChunkPool pool, PDRectangle mediaBox, String[] headers, int widthSampleSize,
+                             int rowsPerBatch, int pagesPerPart) {
+        this.pool = pool;
+        this.mediaBox = mediaBox;
+        this.headers = headers;
+        this.widthSampleSize = Math.max(1, widthSampleSize);
+        this.rowsPerBatch = rowsPerBatch;
+        this.rowsPerPart = PagedPdfTable.rowsPerPage(mediaBox) * Math.max(1, pagesPerPart);
+    }
+
+    @Override
+    public void addRow(String[] row) throws IOException {
+        rows.add(row);
+        if (rows.size() < rowsPerPart) {
+            return;
+        }
+        float[] widths = getColumnWidths();
+        List<String[]> part = rows;
+        rows = new ArrayList<>(rowsPerPart);
+        pending.add(pool.submit(() -> render(part, widths)));
+        if (pending.size() >= pool.getParallelism() * 2) {
+            parts.add(pending.removeFirst().join());
+        }
+    }
+
+    /**
+     * Draws the remaining rows and writes the document into the stream. The stream is not closed
+     */
+    public void finish(OutputStream output) throws IOException {
+        if (parts.isEmpty() && pending.isEmpty()) {
+            try (PDDocument document = layout(rows, getColumnWidths())) {
+                document.save(output);
+            }
+            return;
+        }
+        if (!rows.isEmpty()) {
+            pending.add(pool.submit(() -> render(rows, getColumnWidths())));
+        }
+        while (!pending.isEmpty()) {
+            parts.add(pending.removeFirst().join());
+        }
+
+        PDFMergerUtility merger = new PDFMergerUtility();
+        for (Path part : parts) {
+            merger.addSource(part.toFile());
+        }
+        merger.setDestinationStream(output);
+        merger.mergeDocuments(MemoryUsageSetting.setupTempFileOnly());
+    }
+
+    /**
+     * Deletes the part files. Parts still being drawn delete their file themselves once done
+     */
+    @Override
+    public void close() {
+        closed = true;
+        pending.forEach(task -> task.cancel(false));
+        files.forEach(this::deleteQuietly);
+    }
+
+    /**
+     * Measured on the header and the first rows, once, so all parts share the same columns
+     */
+    private float[] getColumnWidths() {
+        if (columnWidths == null) {
+            List<String[]> sample = new ArrayList<>(widthSampleSize + 1);
+            sample.add(headers);
+            sample.addAll(rows.subList(0, Math.min(widthSampleSize, rows.size())));
+            columnWidths = CustomDataTable.computeColumnWidths(sample);
+        }
+        return columnWidths;
+    }
+
+    private Path render(List<String[]> part, float[] widths) throws IOException {
+        Path file = Files.createTempFile("export-part-", ".pdf");
+        files.add(file);
+        try (PDDocument document = layout(part, widths)) {
+            document.save(file.toFile());
+        } finally {
+            // the export may have been aborted while this part was drawn
+            if (closed) {
+                deleteQuietly(file);
+            }
+        }
+        return file;
+    }
+
+    private PDDocument layout(List<String[]> part, float[] widths) throws IOException {
+        PDDocument document = new PDDocument(MemoryUsageSetting.setupTempFileOnly());
+        try {
+            PDPage page = new PDPage(mediaBox);
+            document.addPage(page);
+            PagedPdfTable table = new PagedPdfTable(document, page, headers, widths, rowsPerBatch);
+            for (String[] row : part) {
+                table.addRow(row);
+            }
+            table.finish();
+            return document;
+        } catch (IOException | RuntimeException e) {
+            document.close();
+            throw e;
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Cannot delete pdf part {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import be.quodlibet.boxable.utils.FontUtils;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Advance widths of the fonts used by the pdf exports, looked up once per character when the class is
+ * loaded. Measuring a string is then a loop over an array instead of an encoding and a glyph lookup per
+ * character through PDFBox. The tables are read only, so they are shared by all exports.
+ */
+public enum PdfFontMetrics {
+    HELVETICA(PDType1Font.HELVETICA),
+    HELVETICA_BOLD(PDType1Font.HELVETICA_BOLD);
+
+    private final PDFont font;
+    /**
+     * Advance width by character in 1/1000 of the font size, NaN for characters missing from the font
+     * encoding
+     */
+    private final float[] advances;
+
+    PdfFontMetrics(PDFont font) {
+        this.font = font;
+        this.advances = measure(font);
+    }
+
+    /**
+     * @return metrics of the font, null when its widths are not cached
+     */
+    @Nullable
+    public static PdfFontMetrics of(PDFont font) {
+        for (PdfFontMetrics metrics : values()) {
+            if (metrics.font == font) {
+                return metrics;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Width of the text in the font, from the cache when the font is cached and through PDFBox otherwise
+     */
+    public static float getStringWidth(PDFont font, String text, float fontSize) {
+        PdfFontMetrics metrics = of(font);
+        return metrics != null
+                ? metrics.getStringWidth(text, fontSize)
+                : FontUtils.getStringWidth(font, text, fontSize);
+    }
+
+    /**
+     * Width of the text at the given size, equal to {@link FontUtils#getStringWidth}
+     *
+     * @throws IllegalArgumentException when a character is missing from the font encoding, as PDFBox does
+     */
+    public float getStringWidth(String text, float fontSize) {
+        float width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            float advance = c < advances.length ? advances[c] : Float.NaN;
+            if (Float.isNaN(advance)) {
+                throw new IllegalArgumentException(String.format("U+%04X is not available in the encoding of %s",
+                        (int) c, font.getName()));
+            }
+            width += advance;
+        }
+        return width / 1000 * fontSize;
+    }
+
+    private static float[] measure(PDFont font) {
+        float[] advances = new float[Character.MAX_VALUE + 1];
+        int length = 0;
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            try {
+                advances[c] = font.getStringWidth(String.valueOf((char) c));
+                length = c + 1;
+            } catch (IllegalArgumentException | IOException e) {
+                advances[c] = Float.NaN;
+            }
+        }
+        return Arrays.copyOf(advances, length);
+    }
+}
@@ -0,0 +1,56 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+
+/**
+ * Collects the row cells as text for a {@link PagedPdfTable} or a {@link ParallelPdfWriter}. Boxable lays
+ * out strings and keeps the rows of a batch until it is drawn, so unlike the other sinks this one still
+ * builds a {@code String[]} per row.
+ */
+public class PdfRowSink implements ExportRowSink {
+    private final PdfRowWriter table;
+    private final int columns;
+    private String[] cells;
+    private int column;
+
+    public PdfRowSink(PdfRowWriter table, int columns) {
+        this.table = table;
+        this.columns = columns;
+        this.cells = new String[columns];
+    }
+
+    @Override
+    public void string(@Nullable String value) {
+        cells[column++] = value;
+    }
+
+    @Override
+    public void number(double value) {
+        string(Double.toString(value));
+    }
+
+    @Override
+    public void date(@Nullable LocalDate value, ExportDateFormat format) {
+        string(value == null ? null : format.format(value));
+    }
+
+    @Override
+    public void enumValue(@Nullable Enum<?> value) {
+        string(value == null ? null : value.name());
+    }
+
+    @Override
+    public void endRow() {
+        try {
+            table.addRow(cells);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        cells = new String[columns];
+        column = 0;
+    }
+}
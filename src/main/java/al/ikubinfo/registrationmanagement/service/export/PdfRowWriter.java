@@ -0,0 +1,11 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import java.io.IOException;
+
+/**
+ * Receives the rows of a pdf export as text, in export order
+ */
+public interface PdfRowWriter {
+
+    void addRow(String[] row) throws IOException;
+}
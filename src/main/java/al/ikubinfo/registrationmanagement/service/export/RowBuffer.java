@@ -0,0 +1,100 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import org.springframework.lang.Nullable;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Records rows in memory so they can be produced on one thread and written to the real sink on another.
+ * Cells are kept in flat arrays instead of one object per cell.
+ */
+public class RowBuffer implements ExportRowSink {
+    private static final byte STRING = 0;
+    private static final byte NUMBER = 1;
+    private static final byte ENUM = 2;
+    private static final byte END_ROW = 3;
+    /**
+     * Dates are stored as {@code DATE + format ordinal}
+     */
+    private static final byte DATE = 4;
+    private static final ExportDateFormat[] DATE_FORMATS = ExportDateFormat.values();
+
+    private byte[] kinds = new byte[256];
+    private Object[] values = new Object[256];
+    private double[] numbers = new double[256];
+    private int size;
+    private int rows;
+
+    @Override
+    public void string(@Nullable String value) {
+        add(STRING, value, 0);
+    }
+
+    @Override
+    public void number(double value) {
+        add(NUMBER, null, value);
+    }
+
+    @Override
+    public void date(@Nullable LocalDate value, ExportDateFormat format) {
+        add((byte) (DATE + format.ordinal()), value, 0);
+    }
+
+    @Override
+    public void enumValue(@Nullable Enum<?> value) {
+        add(ENUM, value, 0);
+    }
+
+    @Override
+    public void endRow() {
+        add(END_ROW, null, 0);
+        rows++;
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    /**
+     * Writes the recorded rows into the target, in the order they were recorded
+     *
+     * @param target   receives the rows
+     * @param progress notified after each row
+     */
+    public void replay(ExportRowSink target, ExportProgress progress) {
+        for (int i = 0; i < size; i++) {
+            byte kind = kinds[i];
+            switch (kind) {
+                case STRING:
+                    target.string((String) values[i]);
+                    break;
+                case NUMBER:
+                    target.number(numbers[i]);
+                    break;
+                case ENUM:
+                    target.enumValue((Enum<?>) values[i]);
+                    break;
+                case END_ROW:
+                    target.endRow();
+                    progress.rowWritten();
+                    break;
+                default:
+                    target.date((LocalDate) values[i], DATE_FORMATS[kind - DATE]);
+            }
+        }
+    }
+
+    private void add(byte kind, @Nullable Object value, double number) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            values = Arrays.copyOf(values, capacity);
+            numbers = Arrays.copyOf(numbers, capacity);
+        }
+        kinds[size] = kind;
+        values[size] = value;
+        numbers[size] = number;
+        size++;
+    }
+}
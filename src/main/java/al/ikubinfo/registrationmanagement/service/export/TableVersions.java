@@ -0,0 +1,29 @@
+package al.ikubinfo.registrationmanagement.service.export;
+
+import al.ikubinfo.registrationmanagement.entity.EntityChangeEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counter per table, keyed by the entity mapped to it. A counter moves once the transaction
+ * changing the table has committed, so data read under a version is never older than that version.
+ * Counters start at zero on every start of the application.
+ */
+@Component
+public class TableVersions {
+    private final Map<Class<?>, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void entityChanged(EntityChangeEvent event) {
+        versions.computeIfAbsent(event.getEntityType(), type -> new AtomicLong()).incrementAndGet();
+    }
+
+    public long getVersion(Class<?> entityType) {
+        AtomicLong version = versions.get(entityType);
+        return version != null ? version.get() : 0;
+    }
+}
@@ -0,0 +1,227 @@
+package al.ikubinfo.registrationmanagement.service.impl;
+
+import al.ikubinfo.registrationmanagement.dto.searchDtos.SuggestionDto;
+import al.ikubinfo.registrationmanagement.entity.CourseEntity;
+import al.ikubinfo.registrationmanagement.entity.CourseUserEntity;
+import al.ikubinfo.registrationmanagement.entity.EntityChangeEvent;
+import al.ikubinfo.registrationmanagement.entity.UserEntity;
+import al.ikubinfo.registrationmanagement.service.AutocompleteService;
+import al.ikubinfo.registrationmanagement.service.search.PrefixIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * Prefix indexes of the course and student pickers. Both are built on first use and from then on updated by
+ * the entity change events once their transaction committed: courses and students by their own changes, the
+ * enrolment counts ranking the courses and telling the unassigned students apart by the enrolment changes.
+ * A change committing while the indexes are built may be missed, the scheduled rebuild corrects it.
+ */
+@Service
+@Slf4j
+public class AutocompleteServiceImpl implements AutocompleteService {
+    private static final int MAX_LIMIT = 50;
+
+    private volatile Catalog catalog;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<SuggestionDto> suggestCourses(String prefix, int limit) {
+        Suggestions courses = getCatalog().courses;
+        return courses.suggest(prefix, limit, id -> true);
+    }
+
+    @Override
+    public List<SuggestionDto> suggestStudents(String prefix, int limit, boolean unassigned) {
+        Catalog current = getCatalog();
+        return current.students.suggest(prefix, limit,
+                id -> !unassigned || current.userEnrolments.getOrDefault(id, 0L) == 0);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void entityChanged(EntityChangeEvent event) {
+        Catalog current = catalog;
+        // nothing is indexed yet, the change is read on first use
+        if (current == null) {
+            return;
+        }
+        if (event.getEntity() instanceof UserEntity) {
+            UserEntity user = (UserEntity) event.getEntity();
+            if (user.isDeleted()) {
+                current.students.remove(user.getId());
+            } else {
+                current.students.put(user.getId(),
+                        studentLabel(user.getFirstName(), user.getLastName(), user.getEmail()),
+                        epochDay(user.getModifiedDate()),
+                        studentKeys(user.getFirstName(), user.getLastName(), user.getEmail()));
+            }
+        } else if (event.getEntity() instanceof CourseEntity) {
+            CourseEntity course = (CourseEntity) event.getEntity();
+            if (course.isDeleted()) {
+                current.courses.remove(course.getId());
+            } else {
+                current.courses.put(course.getId(), course.getCourseName(),
+                        current.courseEnrolments.getOrDefault(course.getId(), 0L), List.of(course.getCourseName()));
+            }
+        } else if (event.getEntity() instanceof CourseUserEntity && event.getLiveDelta() != 0) {
+            CourseUserEntity enrolment = (CourseUserEntity) event.getEntity();
+            Long courseId = enrolment.getId().getCourseId();
+            long enrolments = current.courseEnrolments.merge(courseId, (long) event.getLiveDelta(), Long::sum);
+            current.courses.ranks.computeIfPresent(courseId, (id, rank) -> enrolments);
+            current.userEnrolments.merge(enrolment.getId().getUserId(), (long) event.getLiveDelta(), Long::sum);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Scheduled(initialDelayString = "${search.rebuild-interval:PT10M}",
+            fixedDelayString = "${search.rebuild-interval:PT10M}")
+    public void rebuild() {
+        if (catalog != null) {
+            catalog = build();
+        }
+    }
+
+    private Catalog getCatalog() {
+        Catalog current = catalog;
+        if (current == null) {
+            synchronized (this) {
+                current = catalog;
+                if (current == null) {
+                    current = build();
+                    catalog = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Reads the names of the live courses and students and counts the live enrolments of each, the soft
+     * deleted rows are filtered by the where clause of the entities
+     */
+    private Catalog build() {
+        Map<Long, Long> courseEnrolments = count("select cu.id.courseId, count(cu) from CourseUserEntity cu "
+                + "group by cu.id.courseId");
+        Map<Long, Long> userEnrolments = count("select cu.id.userId, count(cu) from CourseUserEntity cu "
+                + "group by cu.id.userId");
+
+        List<Tuple> courseRows = entityManager.createQuery("select c.id, c.courseName from CourseEntity c",
+                Tuple.class).getResultList();
+        Map<Long, List<String>> courseKeys = new HashMap<>();
+        Suggestions courses = new Suggestions();
+        for (Tuple row : courseRows) {
+            Long id = row.get(0, Long.class);
+            String name = row.get(1, String.class);
+            courseKeys.put(id, List.of(name));
+            courses.labels.put(id, name);
+            courses.ranks.put(id, courseEnrolments.getOrDefault(id, 0L));
+        }
+        courses.index = PrefixIndex.of(courseKeys);
+
+        List<Tuple> userRows = entityManager.createQuery("select u.id, u.firstName, u.lastName, u.email, "
+                + "u.modifiedDate from UserEntity u", Tuple.class).getResultList();
+        Map<Long, List<String>> userKeys = new HashMap<>();
+        Suggestions students = new Suggestions();
+        for (Tuple row : userRows) {
+            Long id = row.get(0, Long.class);
+            String firstName = row.get(1, String.class);
+            String lastName = row.get(2, String.class);
+            String email = row.get(3, String.class);
+            userKeys.put(id, studentKeys(firstName, lastName, email));
+            students.labels.put(id, studentLabel(firstName, lastName, email));
+            students.ranks.put(id, epochDay(row.get(4, LocalDate.class)));
+        }
+        students.index = PrefixIndex.of(userKeys);
+
+        log.info("Indexed {} courses and {} students for autocomplete", courseRows.size(), userRows.size());
+        return new Catalog(courses, students, new ConcurrentHashMap<>(courseEnrolments),
+                new ConcurrentHashMap<>(userEnrolments));
+    }
+
+    private Map<Long, Long> count(String query) {
+        return entityManager.createQuery(query, Tuple.class).getResultList().stream()
+                .collect(Collectors.toMap(row -> row.get(0, Long.class), row -> row.get(1, Long.class)));
+    }
+
+    /**
+     * The full name, so a typed first and last name matches, and the email
+     */
+    private static List<String> studentKeys(String firstName, String lastName, String email) {
+        return Arrays.asList(firstName + " " + lastName, email);
+    }
+
+    private static String studentLabel(String firstName, String lastName, String email) {
+        return firstName + " " + lastName + " (" + email + ")";
+    }
+
+    private static long epochDay(LocalDate date) {
+        return date != null ? date.toEpochDay() : 0;
+    }
+
+    private static class Catalog {
+        private final Suggestions courses;
+        private final Suggestions students;
+        private final Map<Long, Long> courseEnrolments;
+        private final Map<Long, Long> userEnrolments;
+
+        private Catalog(Suggestions courses, Suggestions students, Map<Long, Long> courseEnrolments,
+                        Map<Long, Long> userEnrolments) {
+            this.courses = courses;
+            this.students = students;
+            this.courseEnrolments = courseEnrolments;
+            this.userEnrolments = userEnrolments;
+        }
+    }
+
+    /**
+     * Prefix index of one picker with the label and the rank of every row
+     */
+    private static class Suggestions {
+        private final Map<Long, String> labels = new ConcurrentHashMap<>();
+        private final Map<Long, Long> ranks = new ConcurrentHashMap<>();
+        private PrefixIndex index;
+
+        private void put(Long id, String label, long rank, List<String> values) {
+            labels.put(id, label);
+            ranks.put(id, rank);
+            index.put(id, values);
+        }
+
+        private void remove(Long id) {
+            index.remove(id);
+            labels.remove(id);
+            ranks.remove(id);
+        }
+
+        private List<SuggestionDto> suggest(String prefix, int limit, LongPredicate filter) {
+            List<Long> ids = index.search(prefix, Math.max(1, Math.min(limit, MAX_LIMIT)),
+                    id -> ranks.getOrDefault(id, 0L), filter);
+            return ids.stream()
+                    .map(id -> {
+                        SuggestionDto suggestion = new SuggestionDto();
+                        suggestion.setId(id);
+                        suggestion.setLabel(labels.get(id));
+                        return suggestion;
+                    })
+                    .filter(suggestion -> suggestion.getLabel() != null)
+                    .collect(Collectors.toList());
+        }
+    }
+}
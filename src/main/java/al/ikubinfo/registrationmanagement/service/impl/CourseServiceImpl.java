@@ -4,23 +4,33 @@ import al.ikubinfo.registrationmanagement.converter.CourseConverter;
 import al.ikubinfo.registrationmanagement.converter.CourseUserConverter;
 import al.ikubinfo.registrationmanagement.dto.courseDtos.*;
 import al.ikubinfo.registrationmanagement.dto.courseUserDtos.SimplifiedCourseUserDto;
+import al.ikubinfo.registrationmanagement.entity.BaseEntity;
 import al.ikubinfo.registrationmanagement.entity.CourseEntity;
+import al.ikubinfo.registrationmanagement.entity.CourseUserEntity;
+import al.ikubinfo.registrationmanagement.entity.UserEntity;
 import al.ikubinfo.registrationmanagement.repository.CourseRepository;
 import al.ikubinfo.registrationmanagement.repository.CourseUserRepository;
+import al.ikubinfo.registrationmanagement.repository.CursorPage;
+import al.ikubinfo.registrationmanagement.repository.ListProjection;
 import al.ikubinfo.registrationmanagement.repository.criteria.CourseCriteria;
 import al.ikubinfo.registrationmanagement.repository.specification.CourseSpecification;
 import al.ikubinfo.registrationmanagement.service.CourseService;
+import al.ikubinfo.registrationmanagement.service.EntityCounterService;
 import al.ikubinfo.registrationmanagement.service.ServiceTemplate;
+import al.ikubinfo.registrationmanagement.service.export.ExportDateFormat;
+import al.ikubinfo.registrationmanagement.service.export.ExportProjection;
+import al.ikubinfo.registrationmanagement.service.export.ExportRowSink;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.Tuple;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,8 +38,6 @@ public class CourseServiceImpl
         extends ServiceTemplate<CourseCriteria, CourseEntity, CourseRepository, CourseSpecification>
         implements CourseService {
     @Autowired
-    CourseSpecification courseSpecification;
-    @Autowired
     private CourseConverter converter;
     @Autowired
     private CourseUserConverter courseUserConverter;
@@ -37,17 +45,22 @@ public class CourseServiceImpl
     private CourseRepository courseRepository;
     @Autowired
     private CourseUserRepository courseUserRepository;
+    @Autowired
+    private EntityCounterService entityCounter;
 
     protected CourseServiceImpl(CourseRepository repository, CourseSpecification specificationBuilder) {
         super(repository, specificationBuilder);
     }
 
     @Override
-    public Page<CourseDto> filterCourses(CourseCriteria criteria) {
-        Pageable pageable = PageRequest.of(criteria.getPageNumber(), criteria.getPageSize(),
-                Sort.Direction.valueOf(criteria.getSortDirection()), criteria.getOrderBy());
-        Specification<CourseEntity> spec = courseSpecification.filter(criteria);
-        return courseRepository.findAll(spec, pageable).map(converter::toDto);
+    public CursorPage<CourseDto> filterCourses(CourseCriteria criteria) {
+        return findPage(criteria, CourseEntity.FETCH_STUDENTS).map(converter::toDto);
+    }
+
+    @Override
+    public CursorPage<SimplifiedCourseDto> listCourses(CourseCriteria criteria) {
+        return findProjectedPage(criteria, ListProjection.of(converter::getSimplifiedCourseSelections,
+                tuple -> converter.toSimplifiedCourseDto(tuple, 0)));
     }
 
     @Override
@@ -79,10 +92,11 @@ public class CourseServiceImpl
 
     @Override
     public Long getCourseCount() {
-        return courseRepository.count();
+        return entityCounter.getCount(CourseEntity.class);
     }
 
     @Override
+    @Transactional
     public void deleteCourseById(Long id) {
         courseUserRepository.getCourseUserEntitiesByCourseCourseName(getCourseById(id).getCourseName()).forEach(e -> e.setDeleted(true));
         CourseEntity course = courseRepository.findById(id).orElseThrow(() -> new RuntimeException("Course does not exist"));
@@ -113,23 +127,48 @@ public class CourseServiceImpl
     }
 
     @Override
-    public String[] populate(CourseEntity entity) {
-        if (entity.getRegistrationStartDate() == null) {
-            entity.setRegistrationStartDate(LocalDate.now());
-        }
-        if (entity.getRegistrationEndDate() == null) {
-            entity.setRegistrationEndDate(LocalDate.now());
-        }
-        if (entity.getPrice() == null) {
-            entity.setPrice((double) 0000);
-        }
-        return new String[]{
-                entity.getCourseName(),
-                entity.getPrice().toString(),
-                entity.getStatus().name(),
-                entity.getRegistrationStartDate().format(DateTimeFormatter.ofPattern("dd-MM-yyyy")),
-                entity.getRegistrationEndDate().format(DateTimeFormatter.ofPattern("dd-MM-yyyy"))
-        };
+    protected void writeRow(CourseEntity entity, ExportRowSink row) {
+        writeRow(entity.getCourseName(), entity.getPrice(), entity.getStatus(),
+                entity.getRegistrationStartDate(), entity.getRegistrationEndDate(), row);
     }
-}
 
+    /**
+     * The student criteria join the enrolments and their users
+     */
+    @Override
+    public Set<Class<? extends BaseEntity>> getExportSources() {
+        return Set.of(CourseEntity.class, CourseUserEntity.class, UserEntity.class);
+    }
+
+    @Override
+    protected Optional<ExportProjection<CourseEntity>> getExportProjection() {
+        return Optional.of(ExportProjection.of(this::getExportSelections, this::writeExportRow));
+    }
+
+    private List<Selection<?>> getExportSelections(Root<CourseEntity> root) {
+        return List.of(
+                root.get("courseName"),
+                root.get("price"),
+                root.get("status"),
+                root.get("registrationStartDate"),
+                root.get("registrationEndDate"));
+    }
+
+    private void writeExportRow(Tuple tuple, ExportRowSink row) {
+        writeRow(tuple.get(0, String.class), tuple.get(1, Double.class), tuple.get(2, CourseStatus.class),
+                tuple.get(3, LocalDate.class), tuple.get(4, LocalDate.class), row);
+    }
+
+    /**
+     * Missing prices are exported as 0 and missing registration dates as today
+     */
+    static void writeRow(String courseName, Double price, CourseStatus status,
+                         LocalDate registrationStartDate, LocalDate registrationEndDate, ExportRowSink row) {
+        LocalDate today = registrationStartDate == null || registrationEndDate == null ? LocalDate.now() : null;
+        row.string(courseName);
+        row.number(price != null ? price : 0.0);
+        row.enumValue(status);
+        row.date(registrationStartDate != null ? registrationStartDate : today, ExportDateFormat.DAY_MONTH_YEAR);
+        row.date(registrationEndDate != null ? registrationEndDate : today, ExportDateFormat.DAY_MONTH_YEAR);
+    }
+}
@@ -3,39 +3,92 @@ package al.ikubinfo.registrationmanagement.service.impl;
 import al.ikubinfo.registrationmanagement.converter.CourseUserConverter;
 import al.ikubinfo.registrationmanagement.dto.courseUserDtos.CourseUserDto;
 import al.ikubinfo.registrationmanagement.dto.courseUserDtos.CourseUserListDto;
+import al.ikubinfo.registrationmanagement.entity.BaseEntity;
+import al.ikubinfo.registrationmanagement.entity.CourseEntity;
 import al.ikubinfo.registrationmanagement.entity.CourseUserEntity;
 import al.ikubinfo.registrationmanagement.entity.CourseUserId;
+import al.ikubinfo.registrationmanagement.entity.UserEntity;
 import al.ikubinfo.registrationmanagement.repository.CourseUserRepository;
+import al.ikubinfo.registrationmanagement.repository.CursorPage;
+import al.ikubinfo.registrationmanagement.repository.ListProjection;
 import al.ikubinfo.registrationmanagement.repository.UserRepository;
 import al.ikubinfo.registrationmanagement.repository.criteria.CourseUserCriteria;
 import al.ikubinfo.registrationmanagement.repository.specification.CourseSpecification;
 import al.ikubinfo.registrationmanagement.repository.specification.CourseUserSpecification;
 import al.ikubinfo.registrationmanagement.service.CourseUserService;
+import al.ikubinfo.registrationmanagement.service.EntityCounterService;
 import al.ikubinfo.registrationmanagement.service.ServiceTemplate;
+import al.ikubinfo.registrationmanagement.service.export.CsvRowSink;
+import al.ikubinfo.registrationmanagement.service.export.ExportDateFormat;
+import al.ikubinfo.registrationmanagement.service.export.ExportProjection;
+import al.ikubinfo.registrationmanagement.service.export.ExportRowSink;
+import al.ikubinfo.registrationmanagement.service.export.ExportWatermark;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.Query;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class CourseUserServiceImpl extends ServiceTemplate<CourseUserCriteria, CourseUserEntity, CourseUserRepository, CourseUserSpecification> implements CourseUserService {
+    private static final String DELTA_SELECT = "select cu.course_id, cu.user_id, cu.deleted, "
+            + "u.first_name, u.last_name, u.email, u.phone_number, c.course_name, "
+            + "cast(c.course_start_date as date) course_start_date, cast(c.course_end_date as date) course_end_date, "
+            + "c.status, cu.comment, cu.reference, cu.price_paid, cu.price_reduction, "
+            + "cast(cu.modified_date as date) modified_date "
+            + "from course_user cu "
+            + "join users u on u.id = cu.user_id "
+            + "join course c on c.id = cu.course_id ";
+    /**
+     * Soft deleted rows are read with native sql, the entity mappings filter them out. Every branch of the
+     * union is a range scan on a modified_date index
+     */
+    private static final String DELTA_QUERY = DELTA_SELECT
+            + "join (select course_id, user_id from course_user where modified_date >= :since "
+            + "union select e.course_id, e.user_id from course_user e join users eu on eu.id = e.user_id "
+            + "where eu.modified_date >= :since "
+            + "union select e.course_id, e.user_id from course_user e join course ec on ec.id = e.course_id "
+            + "where ec.modified_date >= :since) changed "
+            + "on changed.course_id = cu.course_id and changed.user_id = cu.user_id "
+            + "order by cu.course_id, cu.user_id";
+    private static final String FULL_QUERY = DELTA_SELECT
+            + "where cu.deleted = false "
+            + "order by cu.course_id, cu.user_id";
+    private static final String UPSERT = "UPSERT";
+    private static final String DELETE = "DELETE";
+
     @Autowired
     CourseSpecification courseSpecification;
     @Autowired
-    CourseUserSpecification courseUserSpecification;
-    @Autowired
     private CourseUserConverter courseUserConverter;
     @Autowired
     private CourseUserRepository courseUserRepository;
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private EntityCounterService entityCounter;
+
+    @Value("${export.fetch-size:500}")
+    private int deltaFetchSize;
 
     protected CourseUserServiceImpl(CourseUserRepository repository, CourseUserSpecification specificationBuilder) {
         super(repository, specificationBuilder);
@@ -43,12 +96,9 @@ public class CourseUserServiceImpl extends ServiceTemplate<CourseUserCriteria, C
 
 
     @Override
-    public Page<CourseUserListDto> getCourseUserList(CourseUserCriteria criteria) {
-        Pageable pageable = PageRequest.of(criteria.getPageNumber(), criteria.getPageSize(),
-                Sort.Direction.valueOf(criteria.getSortDirection()), criteria.getOrderBy());
-
-        Specification<CourseUserEntity> spec = courseUserSpecification.filter(criteria);
-        return courseUserRepository.findAll(spec, pageable).map(courseUserConverter::toCourseUserList);
+    public CursorPage<CourseUserListDto> getCourseUserList(CourseUserCriteria criteria) {
+        return findProjectedPage(criteria, ListProjection.of(courseUserConverter::getCourseUserListSelections,
+                courseUserConverter::toCourseUserList));
     }
 
     @Override
@@ -61,7 +111,7 @@ public class CourseUserServiceImpl extends ServiceTemplate<CourseUserCriteria, C
 
     @Override
     public Long getCourseUserCount() {
-        return courseUserRepository.count();
+        return entityCounter.getCount(CourseUserEntity.class);
     }
 
     @Override
@@ -96,6 +146,7 @@ public class CourseUserServiceImpl extends ServiceTemplate<CourseUserCriteria, C
     }
 
     @Override
+    @Transactional
     public void removeUserFromCourse(Long userId, Long courseId) {
         CourseUserEntity entity = courseUserRepository.findByIdCourseIdAndIdUserId(courseId, userId);
         userRepository.getById(userId).set_assigned(false);
@@ -104,6 +155,73 @@ public class CourseUserServiceImpl extends ServiceTemplate<CourseUserCriteria, C
         courseUserRepository.save(entity);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void writeDeltaCsv(@Nullable ExportWatermark since, OutputStream output) throws IOException {
+        Query query = entityManager.createNativeQuery(since != null ? DELTA_QUERY : FULL_QUERY, Tuple.class)
+                .setHint(QueryHints.FETCH_SIZE, deltaFetchSize);
+        if (since != null) {
+            query.setParameter("since", since.getSince().atStartOfDay());
+        }
+
+        String[] headers = getHeaders();
+        String[] deltaHeaders = new String[headers.length + 4];
+        deltaHeaders[0] = "Veprimi";
+        deltaHeaders[1] = "Id kursi";
+        deltaHeaders[2] = "Id studenti";
+        System.arraycopy(headers, 0, deltaHeaders, 3, headers.length);
+        deltaHeaders[deltaHeaders.length - 1] = "Ndryshuar";
+
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        CsvRowSink sink = new CsvRowSink(writer);
+        try (Stream<?> rows = query.getResultStream()) {
+            sink.row(deltaHeaders);
+            rows.forEach(row -> writeDeltaRow((Tuple) row, headers.length, sink));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    /**
+     * Tombstones leave the exported columns empty
+     */
+    private void writeDeltaRow(Tuple tuple, int columns, CsvRowSink sink) {
+        boolean deleted = tuple.get("deleted", Boolean.class);
+        sink.string(deleted ? DELETE : UPSERT);
+        sink.string(String.valueOf(tuple.get("course_id")));
+        sink.string(String.valueOf(tuple.get("user_id")));
+        if (deleted) {
+            for (int i = 0; i < columns; i++) {
+                sink.string(null);
+            }
+        } else {
+            sink.string(tuple.get("first_name", String.class));
+            sink.string(tuple.get("last_name", String.class));
+            sink.string(tuple.get("email", String.class));
+            sink.string(tuple.get("phone_number", String.class));
+            sink.string(tuple.get("course_name", String.class));
+            sink.date(toLocalDate(tuple.get("course_start_date")), ExportDateFormat.ISO);
+            sink.date(toLocalDate(tuple.get("course_end_date")), ExportDateFormat.ISO);
+            sink.string(tuple.get("status", String.class));
+            sink.string(tuple.get("comment", String.class));
+            sink.string(tuple.get("reference", String.class));
+            sink.number(toDouble(tuple.get("price_paid")));
+            sink.number(toDouble(tuple.get("price_reduction")));
+        }
+        sink.date(toLocalDate(tuple.get("modified_date")), ExportDateFormat.ISO);
+        sink.endRow();
+    }
+
+    @Nullable
+    private static LocalDate toLocalDate(@Nullable Object value) {
+        return value != null ? ((java.sql.Date) value).toLocalDate() : null;
+    }
+
+    private static double toDouble(@Nullable Object value) {
+        return value != null ? ((Number) value).doubleValue() : 0.0;
+    }
+
     @Override
     public String[] getHeaders() {
         return new String[]{
@@ -112,34 +230,66 @@ public class CourseUserServiceImpl extends ServiceTemplate<CourseUserCriteria, C
     }
 
     @Override
-    public String[] populate(CourseUserEntity entity) {
-        if (entity.getPricePaid() == null) {
-            entity.setPricePaid(0.0);
-        }
-        if (entity.getPriceReduction() == null) {
-            entity.setPriceReduction(0.0);
-        }
-        String courseStartDate = "";
-        if (entity.getCourse().getCourseStartDate() != null) {
-            courseStartDate = entity.getCourse().getCourseStartDate().toString();
-        }
-        String courseEndDate = "";
-        if (entity.getCourse().getCourseEndDate() != null) {
-            courseEndDate = entity.getCourse().getCourseEndDate().toString();
-        }
+    protected void writeRow(CourseUserEntity entity, ExportRowSink row) {
+        row.string(entity.getUser().getFirstName());
+        row.string(entity.getUser().getLastName());
+        row.string(entity.getUser().getEmail());
+        row.string(entity.getUser().getPhoneNumber());
+        row.string(entity.getCourse().getCourseName());
+        row.date(entity.getCourse().getCourseStartDate(), ExportDateFormat.ISO);
+        row.date(entity.getCourse().getCourseEndDate(), ExportDateFormat.ISO);
+        row.enumValue(entity.getCourse().getStatus());
+        row.string(entity.getComment());
+        row.string(entity.getReference());
+        row.number(entity.getPricePaid() != null ? entity.getPricePaid() : 0.0);
+        row.number(entity.getPriceReduction() != null ? entity.getPriceReduction() : 0.0);
+    }
 
-        return new String[]{entity.getUser().getFirstName(),
-                entity.getUser().getLastName(),
-                entity.getUser().getEmail(),
-                entity.getUser().getPhoneNumber(),
-                entity.getCourse().getCourseName(),
-                courseStartDate,
-                courseEndDate,
-                entity.getCourse().getStatus().toString(),
-                entity.getComment(),
-                entity.getReference(),
-                entity.getPricePaid().toString(),
-                entity.getPriceReduction().toString()
-        };
+    @Override
+    public Set<Class<? extends BaseEntity>> getExportSources() {
+        return Set.of(CourseUserEntity.class, CourseEntity.class, UserEntity.class);
+    }
+
+    @Override
+    protected Path<Long> getChunkAttribute(Root<CourseUserEntity> root) {
+        return root.get("id").get("userId");
+    }
+
+    @Override
+    protected Optional<ExportProjection<CourseUserEntity>> getExportProjection() {
+        return Optional.of(ExportProjection.of(this::getExportSelections, this::writeExportRow));
+    }
+
+    private List<Selection<?>> getExportSelections(Root<CourseUserEntity> root) {
+        Path<UserEntity> user = root.get("user");
+        Path<CourseEntity> course = root.get("course");
+        return List.of(
+                user.get("firstName"),
+                user.get("lastName"),
+                user.get("email"),
+                user.get("phoneNumber"),
+                course.get("courseName"),
+                course.get("courseStartDate"),
+                course.get("courseEndDate"),
+                course.get("status"),
+                root.get("comment"),
+                root.get("reference"),
+                root.get("pricePaid"),
+                root.get("priceReduction"));
+    }
+
+    private void writeExportRow(Tuple tuple, ExportRowSink row) {
+        for (int i = 0; i < 5; i++) {
+            row.string(tuple.get(i, String.class));
+        }
+        row.date(tuple.get(5, LocalDate.class), ExportDateFormat.ISO);
+        row.date(tuple.get(6, LocalDate.class), ExportDateFormat.ISO);
+        row.enumValue(tuple.get(7, Enum.class));
+        row.string(tuple.get(8, String.class));
+        row.string(tuple.get(9, String.class));
+        Double pricePaid = tuple.get(10, Double.class);
+        Double priceReduction = tuple.get(11, Double.class);
+        row.number(pricePaid != null ? pricePaid : 0.0);
+        row.number(priceReduction != null ? priceReduction : 0.0);
     }
 }
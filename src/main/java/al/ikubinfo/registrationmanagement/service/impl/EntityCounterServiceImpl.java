@@ -0,0 +1,71 @@
+package al.ikubinfo.registrationmanagement.service.impl;
+
+import al.ikubinfo.registrationmanagement.entity.BaseEntity;
+import al.ikubinfo.registrationmanagement.entity.EntityChangeEvent;
+import al.ikubinfo.registrationmanagement.service.EntityCounterService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live row totals per entity. A total is counted on first use and from then on moved by the entity change
+ * events once their transaction committed. A change committing while the total is counted may be applied
+ * twice or missed, the scheduled reconciliation corrects it.
+ */
+@Service
+@Slf4j
+public class EntityCounterServiceImpl implements EntityCounterService {
+    private final Map<Class<? extends BaseEntity>, AtomicLong> counts = new ConcurrentHashMap<>();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getCount(Class<? extends BaseEntity> entityType) {
+        return counts.computeIfAbsent(entityType, type -> new AtomicLong(count(type))).get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void entityChanged(EntityChangeEvent event) {
+        AtomicLong count = counts.get(event.getEntityType());
+        // an entity not counted yet is counted with the change on first use
+        if (count != null && event.getLiveDelta() != 0) {
+            count.addAndGet(event.getLiveDelta());
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Scheduled(initialDelayString = "${counters.reconcile-interval:PT10M}",
+            fixedDelayString = "${counters.reconcile-interval:PT10M}")
+    public void reconcile() {
+        counts.forEach((type, count) -> {
+            long actual = count(type);
+            long previous = count.getAndSet(actual);
+            if (previous != actual) {
+                log.info("Reconciled {} count from {} to {}", type.getSimpleName(), previous, actual);
+            }
+        });
+    }
+
+    /**
+     * Counted through the entity, so the soft deleted rows filtered by its where clause are left out
+     */
+    private long count(Class<? extends BaseEntity> entityType) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        query.select(builder.count(query.from(entityType)));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
@@ -0,0 +1,148 @@
+package al.ikubinfo.registrationmanagement.service.impl;
+
+import al.ikubinfo.registrationmanagement.exception.ExportRejectedException;
+import al.ikubinfo.registrationmanagement.repository.criteria.BaseCriteria;
+import al.ikubinfo.registrationmanagement.service.ExportBulkheadService;
+import al.ikubinfo.registrationmanagement.service.ServiceTemplate;
+import al.ikubinfo.registrationmanagement.service.export.ExportFormat;
+import al.ikubinfo.registrationmanagement.service.export.ExportPermit;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class ExportBulkheadServiceImpl implements ExportBulkheadService {
+    private static final String REJECTIONS = "export.bulkhead.rejections";
+
+    private final int maxConcurrent;
+    private final Semaphore slots;
+    private final int queueCapacity;
+    private final Duration maxWait;
+    private final long memoryBudget;
+    private final long streamingReservation;
+    private final Map<ExportFormat, Long> bytesPerRow = new EnumMap<>(ExportFormat.class);
+    private final Duration retryAfter;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong reservedMemory = new AtomicLong();
+
+    public ExportBulkheadServiceImpl(@Value("${export.bulkhead.max-concurrent:2}") int maxConcurrent,
+                                     @Value("${export.bulkhead.queue-capacity:4}") int queueCapacity,
+                                     @Value("${export.bulkhead.max-wait:PT10S}") Duration maxWait,
+                                     @Value("${export.bulkhead.memory-budget:256MB}") DataSize memoryBudget,
+                                     @Value("${export.bulkhead.streaming-reservation:16MB}") DataSize streamingReservation,
+                                     @Value("${export.bulkhead.bytes-per-row.csv:200}") long csvBytesPerRow,
+                                     @Value("${export.bulkhead.bytes-per-row.excel:1000}") long excelBytesPerRow,
+                                     @Value("${export.bulkhead.bytes-per-row.pdf:2000}") long pdfBytesPerRow,
+                                     @Value("${export.bulkhead.retry-after:PT30S}") Duration retryAfter,
+                                     MeterRegistry meterRegistry) {
+        this.maxConcurrent = maxConcurrent;
+        this.slots = new Semaphore(maxConcurrent, true);
+        this.queueCapacity = queueCapacity;
+        this.maxWait = maxWait;
+        this.memoryBudget = memoryBudget.toBytes();
+        this.streamingReservation = streamingReservation.toBytes();
+        this.bytesPerRow.put(ExportFormat.CSV, csvBytesPerRow);
+        this.bytesPerRow.put(ExportFormat.EXCEL, excelBytesPerRow);
+        this.bytesPerRow.put(ExportFormat.PDF, pdfBytesPerRow);
+        this.retryAfter = retryAfter;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("export.bulkhead.queue.depth", waiting, AtomicInteger::get)
+                .description("Exports waiting for a slot")
+                .register(meterRegistry);
+        Gauge.builder("export.bulkhead.active", slots, s -> this.maxConcurrent - s.availablePermits())
+                .description("Exports holding a slot")
+                .register(meterRegistry);
+        Gauge.builder("export.bulkhead.memory.reserved", reservedMemory, AtomicLong::get)
+                .description("Estimated memory of the admitted and waiting exports")
+                .baseUnit(BaseUnits.BYTES)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <C extends BaseCriteria> ExportPermit acquire(ServiceTemplate<C, ?, ?, ?> service, @Nullable C criteria,
+                                                         ExportFormat format, boolean buffered) {
+        return acquire(format, buffered ? service.countExportRows(criteria) : 0, buffered);
+    }
+
+    @Override
+    public ExportPermit acquire(ExportFormat format, long rows, boolean buffered) {
+        long memory = buffered
+                ? rows * bytesPerRow.get(format)
+                : streamingReservation;
+        if (memory > memoryBudget) {
+            throw reject("too_large", HttpStatus.SERVICE_UNAVAILABLE, null,
+                    "The export is too large to be built in memory, use a streamed or background export");
+        }
+        if (!reserve(memory)) {
+            throw reject("memory", HttpStatus.SERVICE_UNAVAILABLE, retryAfter,
+                    "Not enough memory left for the export, try again later");
+        }
+
+        if (!slots.tryAcquire()) {
+            try {
+                waitForSlot();
+            } catch (ExportRejectedException e) {
+                reservedMemory.addAndGet(-memory);
+                throw e;
+            }
+        }
+        return new ExportPermit(() -> {
+            slots.release();
+            reservedMemory.addAndGet(-memory);
+        });
+    }
+
+    private void waitForSlot() {
+        if (waiting.incrementAndGet() > queueCapacity) {
+            waiting.decrementAndGet();
+            throw reject("queue_full", HttpStatus.TOO_MANY_REQUESTS, retryAfter,
+                    "Too many exports are waiting, try again later");
+        }
+        boolean acquired;
+        try {
+            acquired = slots.tryAcquire(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+        if (!acquired) {
+            throw reject("timeout", HttpStatus.TOO_MANY_REQUESTS, retryAfter,
+                    "No export slot became free in time, try again later");
+        }
+    }
+
+    private boolean reserve(long memory) {
+        long current;
+        do {
+            current = reservedMemory.get();
+            if (current + memory > memoryBudget) {
+                return false;
+            }
+        } while (!reservedMemory.compareAndSet(current, current + memory));
+        return true;
+    }
+
+    private ExportRejectedException reject(String reason, HttpStatus status, @Nullable Duration retryAfter,
+                                           String message) {
+        meterRegistry.counter(REJECTIONS, "reason", reason).increment();
+        return new ExportRejectedException(message, status, retryAfter);
+    }
+}
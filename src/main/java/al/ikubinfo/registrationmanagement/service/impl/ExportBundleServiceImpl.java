@@ -0,0 +1,228 @@
+package al.ikubinfo.registrationmanagement.service.impl;
+
+import al.ikubinfo.registrationmanagement.dto.courseDtos.CourseStatus;
+import al.ikubinfo.registrationmanagement.dto.userDtos.UserStatusEnum;
+import al.ikubinfo.registrationmanagement.service.ExportBundleService;
+import al.ikubinfo.registrationmanagement.service.ServiceTemplate;
+import al.ikubinfo.registrationmanagement.service.export.ExcelRowSink;
+import al.ikubinfo.registrationmanagement.service.export.ExportCompression;
+import al.ikubinfo.registrationmanagement.service.export.ExportFormat;
+import al.ikubinfo.registrationmanagement.service.export.ExportProgress;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+@Service
+public class ExportBundleServiceImpl implements ExportBundleService {
+    private static final int MAX_COLUMN_WIDTH = 255;
+    private static final String[] ROSTER_HEADERS = {
+            "Emer", "Mbiemer", "Email", "Nr. telefonit", "Statusi", "cmimi i paguar", "Ulje cmimi"
+    };
+    /**
+     * Courses without enrolments come with a single row of null enrolment columns. Ordered by course, so
+     * the rows of a course are adjacent
+     */
+    private static final String ROSTER_QUERY = "select c.id, c.courseName, c.price, c.status, "
+            + "c.registrationStartDate, c.registrationEndDate, "
+            + "u.id, u.firstName, u.lastName, u.email, u.phoneNumber, cu.status, cu.pricePaid, cu.priceReduction "
+            + "from CourseEntity c "
+            + "left join c.courseUsers cu with cu.deleted = false "
+            + "left join cu.user u "
+            + "order by c.courseName, c.id, u.lastName, u.firstName, u.id";
+
+    @Autowired
+    private UserServiceImpl userService;
+
+    @Autowired
+    private CourseServiceImpl courseService;
+
+    @Autowired
+    private CourseUserServiceImpl courseUserService;
+
+    @Autowired
+    private ExportCompression compression;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${export.fetch-size:500}")
+    private int fetchSize;
+
+    @Value("${export.excel.row-window:100}")
+    private int excelRowWindow;
+
+    @Value("${export.excel.width-sample-size:200}")
+    private int excelWidthSampleSize;
+
+    /**
+     * Each file is read in a transaction of its own, so an enrolment may refer to a user or course
+     * changed after their file was written
+     */
+    @Override
+    public void writeCsvBundle(OutputStream output) throws IOException {
+        Map<String, ServiceTemplate<?, ?, ?, ?>> files = new LinkedHashMap<>();
+        files.put("users.csv", userService);
+        files.put("courses.csv", courseService);
+        files.put("enrolments.csv", courseUserService);
+
+        ZipOutputStream zip = compression.zip(output);
+        for (Map.Entry<String, ServiceTemplate<?, ?, ?, ?>> file : files.entrySet()) {
+            zip.putNextEntry(new ZipEntry(file.getKey()));
+            file.getValue().write(ExportFormat.CSV, null, zip, ExportProgress.NONE);
+            zip.closeEntry();
+        }
+        zip.finish();
+        output.flush();
+    }
+
+    /**
+     * A course row is written once the last enrolment of the course was read, together with its number of
+     * students. Roster rows are grouped one outline level below their course title
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void writeCourseRosterWorkbook(OutputStream output) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(null, excelRowWindow, true, false);
+        try {
+            CellStyle headerStyle = headerStyle(workbook);
+            Font titleFont = workbook.createFont();
+            titleFont.setBold(true);
+            CellStyle titleStyle = workbook.createCellStyle();
+            titleStyle.setFont(titleFont);
+
+            String[] courseHeaders = courseService.getHeaders();
+            String[] courseSheetHeaders = new String[courseHeaders.length + 1];
+            System.arraycopy(courseHeaders, 0, courseSheetHeaders, 0, courseHeaders.length);
+            courseSheetHeaders[courseHeaders.length] = "Nr. studenteve";
+
+            SXSSFSheet courseSheet = workbook.createSheet("courses");
+            SXSSFSheet rosterSheet = workbook.createSheet("rosters");
+            int[] courseWidths = writeHeader(courseSheet, courseSheetHeaders, headerStyle);
+            int[] rosterWidths = writeHeader(rosterSheet, ROSTER_HEADERS, headerStyle);
+            ExcelRowSink courses = new ExcelRowSink(courseSheet, 1, courseWidths, excelWidthSampleSize);
+            ExcelRowSink rosters = new ExcelRowSink(rosterSheet, 1, rosterWidths, excelWidthSampleSize);
+
+            try (Stream<Tuple> rows = entityManager.createQuery(ROSTER_QUERY, Tuple.class)
+                    .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                    .setHint(QueryHints.READ_ONLY, true)
+                    .getResultStream()) {
+                Iterator<Tuple> iterator = rows.iterator();
+                Tuple course = null;
+                int students = 0;
+                int rosterRow = 1;
+                while (iterator.hasNext()) {
+                    Tuple row = iterator.next();
+                    if (course == null || !Objects.equals(course.get(0), row.get(0))) {
+                        if (course != null) {
+                            writeCourse(course, students, courses);
+                        }
+                        course = row;
+                        students = 0;
+                        rosters.string(row.get(1, String.class));
+                        rosters.endRow();
+                        Cell title = rosterSheet.getRow(rosterRow++).getCell(0);
+                        if (title != null) {
+                            title.setCellStyle(titleStyle);
+                        }
+                    }
+                    if (row.get(6) != null) {
+                        writeStudent(row, rosters);
+                        rosterSheet.setRowOutlineLevel(rosterRow++, 1);
+                        students++;
+                    }
+                }
+                if (course != null) {
+                    writeCourse(course, students, courses);
+                }
+            }
+
+            setColumnWidths(courseSheet, courseWidths);
+            setColumnWidths(rosterSheet, rosterWidths);
+            workbook.write(output);
+            output.flush();
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private static void writeCourse(Tuple course, int students, ExcelRowSink row) {
+        CourseServiceImpl.writeRow(course.get(1, String.class), course.get(2, Double.class),
+                course.get(3, CourseStatus.class), course.get(4, LocalDate.class), course.get(5, LocalDate.class), row);
+        row.number(students);
+        row.endRow();
+    }
+
+    private static void writeStudent(Tuple student, ExcelRowSink row) {
+        row.string(student.get(7, String.class));
+        row.string(student.get(8, String.class));
+        row.string(student.get(9, String.class));
+        row.string(student.get(10, String.class));
+        row.enumValue(student.get(11, UserStatusEnum.class));
+        Double pricePaid = student.get(12, Double.class);
+        Double priceReduction = student.get(13, Double.class);
+        row.number(pricePaid != null ? pricePaid : 0.0);
+        row.number(priceReduction != null ? priceReduction : 0.0);
+        row.endRow();
+    }
+
+    private static CellStyle headerStyle(SXSSFWorkbook workbook) {
+        Font headerFont = workbook.createFont();
+        headerFont.setBold(true);
+        headerFont.setFontHeightInPoints((short) 13);
+        headerFont.setColor(IndexedColors.BLUE.getIndex());
+
+        CellStyle headerCellStyle = workbook.createCellStyle();
+        headerCellStyle.setFont(headerFont);
+        headerCellStyle.setAlignment(HorizontalAlignment.CENTER);
+        headerCellStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        headerCellStyle.setFillForegroundColor(IndexedColors.YELLOW.getIndex());
+        return headerCellStyle;
+    }
+
+    /**
+     * @return initial column widths, the header font is larger and bold so it gets some extra room
+     */
+    private static int[] writeHeader(SXSSFSheet sheet, String[] headers, CellStyle style) {
+        int[] columnWidths = new int[headers.length];
+        Row headerRow = sheet.createRow(0);
+        for (int i = 0; i < headers.length; i++) {
+            Cell cell = headerRow.createCell(i);
+            cell.setCellValue(headers[i]);
+            cell.setCellStyle(style);
+            columnWidths[i] = headers[i].length() + 4;
+        }
+        return columnWidths;
+    }
+
+    private static void setColumnWidths(SXSSFSheet sheet, int[] columnWidths) {
+        for (int i = 0; i < columnWidths.length; i++) {
+            sheet.setColumnWidth(i, Math.min(columnWidths[i] + 2, MAX_COLUMN_WIDTH) * 256);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package al.ikubinfo.registrationmanagement.service.impl;
+
+import al.ikubinfo.registrationmanagement.converter.ExportJobConverter;
+import al.ikubinfo.registrationmanagement.exception.ExportCancelledException;
+import al.ikubinfo.registrationmanagement.exception.ExportJobNotFoundException;
+import al.ikubinfo.registrationmanagement.exception.ExportRejectedException;
+import al.ikubinfo.registrationmanagement.repository.criteria.BaseCriteria;
+import al.ikubinfo.registrationmanagement.service.ExportJobService;
+import al.ikubinfo.registrationmanagement.service.ServiceTemplate;
+import al.ikubinfo.registrationmanagement.service.export.ExportFormat;
+import al.ikubinfo.registrationmanagement.service.export.ExportJob;
+import al.ikubinfo.registrationmanagement.service.export.ExportJobStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Service
+@Slf4j
+public class ExportJobServiceImpl implements ExportJobService {
+    private static final String PROGRESS_EVENT = "progress";
+    private static final String FINISHED_EVENT = "finished";
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    private final Path spoolDir;
+    private final Duration ttl;
+    private final Duration emitterTimeout;
+
+    @Autowired
+    private ExportJobConverter converter;
+
+    public ExportJobServiceImpl(@Value("${export.jobs.pool-size:2}") int poolSize,
+                                @Value("${export.jobs.queue-capacity:20}") int queueCapacity,
+                                @Value("${export.jobs.spool-dir}") String spoolDir,
+                                @Value("${export.jobs.ttl:PT1H}") Duration ttl,
+                                @Value("${export.jobs.emitter-timeout:PT30M}") Duration emitterTimeout) throws IOException {
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("export-job-"));
+        this.spoolDir = Files.createDirectories(Paths.get(spoolDir));
+        this.ttl = ttl;
+        this.emitterTimeout = emitterTimeout;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public <C extends BaseCriteria> ExportJob submit(ServiceTemplate<C, ?, ?, ?> service, C criteria, ExportFormat format) {
+        ExportJob job = new ExportJob(UUID.randomUUID().toString(), format, j -> publish(j, PROGRESS_EVENT));
+        jobs.put(job.getId(), job);
+        try {
+            job.setFuture(executor.submit(() -> run(job, service, criteria)));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw new ExportRejectedException("Too many export jobs are queued, try again later");
+        }
+        return job;
+    }
+
+    @Override
+    public ExportJob getJob(String jobId) {
+        ExportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ExportJobNotFoundException("Export job " + jobId + " does not exist");
+        }
+        return job;
+    }
+
+    @Override
+    public ExportJob cancel(String jobId) {
+        ExportJob job = getJob(jobId);
+        if (!job.getStatus().isFinished()) {
+            job.requestCancel();
+            // a queued job never starts, a running one stops at its next row
+            if (job.getStatus() == ExportJobStatus.QUEUED && job.getFuture() != null && job.getFuture().cancel(false)) {
+                job.cancelled();
+                publish(job, FINISHED_EVENT);
+            }
+        }
+        return job;
+    }
+
+    @Override
+    public SseEmitter subscribe(String jobId) {
+        ExportJob job = getJob(jobId);
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        emitter.onCompletion(() -> job.getEmitters().remove(emitter));
+        emitter.onTimeout(() -> job.getEmitters().remove(emitter));
+        emitter.onError(e -> job.getEmitters().remove(emitter));
+        job.getEmitters().add(emitter);
+        // the job may have finished before the emitter was registered
+        publish(job, job.getStatus().isFinished() ? FINISHED_EVENT : PROGRESS_EVENT);
+        return emitter;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${export.jobs.cleanup-interval:PT5M}")
+    public void removeExpiredJobs() {
+        LocalDateTime expiry = LocalDateTime.now().minus(ttl);
+        jobs.values().removeIf(job -> {
+            if (job.getStatus().isFinished() && job.getFinishedAt().isBefore(expiry)) {
+                deleteQuietly(job.getFile());
+                return true;
+            }
+            return false;
+        });
+
+        // files left behind by a previous run of the application
+        Set<Path> known = jobs.values().stream()
+                .map(ExportJob::getFile)
+                .collect(Collectors.toSet());
+        Instant fileExpiry = Instant.now().minus(ttl);
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            files.filter(file -> !known.contains(file))
+                    .filter(file -> isOlderThan(file, fileExpiry))
+                    .forEach(this::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Cannot clean export spool directory {}", spoolDir, e);
+        }
+    }
+
+    private <C extends BaseCriteria> void run(ExportJob job, ServiceTemplate<C, ?, ?, ?> service, C criteria) {
+        if (job.isCancelRequested()) {
+            job.cancelled();
+            publish(job, FINISHED_EVENT);
+            return;
+        }
+        job.start();
+        publish(job, PROGRESS_EVENT);
+        Path file = spoolDir.resolve(job.getId() + "." + job.getFormat().getExtension());
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(file))) {
+            service.write(job.getFormat(), criteria, output, job);
+        } catch (ExportCancelledException e) {
+            deleteQuietly(file);
+            job.cancelled();
+            publish(job, FINISHED_EVENT);
+            return;
+        } catch (Exception e) {
+            log.error("Export job {} failed", job.getId(), e);
+            deleteQuietly(file);
+            job.fail("Export failed");
+            publish(job, FINISHED_EVENT);
+            return;
+        }
+        job.complete(file);
+        publish(job, FINISHED_EVENT);
+    }
+
+    private void publish(ExportJob job, String eventName) {
+        for (SseEmitter emitter : job.getEmitters()) {
+            try {
+                emitter.send(SseEmitter.event().name(eventName).data(converter.toDto(job)));
+                if (FINISHED_EVENT.equals(eventName)) {
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                job.getEmitters().remove(emitter);
+            }
+        }
+    }
+
+    private boolean isOlderThan(Path file, Instant instant) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(instant);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Cannot delete export file {}", file, e);
+        }
+    }
+}
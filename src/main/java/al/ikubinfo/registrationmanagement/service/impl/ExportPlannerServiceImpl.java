@@ -0,0 +1,74 @@
+package al.ikubinfo.registrationmanagement.service.impl;
+
+import al.ikubinfo.registrationmanagement.repository.criteria.BaseCriteria;
+import al.ikubinfo.registrationmanagement.service.ExportPlannerService;
+import al.ikubinfo.registrationmanagement.service.ServiceTemplate;
+import al.ikubinfo.registrationmanagement.service.export.ExportFormat;
+import al.ikubinfo.registrationmanagement.service.export.ExportPlan;
+import al.ikubinfo.registrationmanagement.service.export.ExportStrategy;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Service
+@Slf4j
+public class ExportPlannerServiceImpl implements ExportPlannerService {
+    private static final String PLANS = "export.plans";
+    private static final String PLANNED_ROWS = "export.plans.rows";
+
+    /**
+     * Largest row count built in memory, per format
+     */
+    private final Map<ExportFormat, Long> inMemoryMax = new EnumMap<>(ExportFormat.class);
+    /**
+     * Largest row count streamed, per format. Larger exports run as background jobs
+     */
+    private final Map<ExportFormat, Long> streamingMax = new EnumMap<>(ExportFormat.class);
+    private final MeterRegistry meterRegistry;
+
+    public ExportPlannerServiceImpl(@Value("${export.planner.csv.in-memory-max:10000}") long csvInMemoryMax,
+                                    @Value("${export.planner.csv.streaming-max:1000000}") long csvStreamingMax,
+                                    @Value("${export.planner.excel.in-memory-max:5000}") long excelInMemoryMax,
+                                    @Value("${export.planner.excel.streaming-max:200000}") long excelStreamingMax,
+                                    @Value("${export.planner.pdf.in-memory-max:1000}") long pdfInMemoryMax,
+                                    @Value("${export.planner.pdf.streaming-max:20000}") long pdfStreamingMax,
+                                    MeterRegistry meterRegistry) {
+        inMemoryMax.put(ExportFormat.CSV, csvInMemoryMax);
+        inMemoryMax.put(ExportFormat.EXCEL, excelInMemoryMax);
+        inMemoryMax.put(ExportFormat.PDF, pdfInMemoryMax);
+        streamingMax.put(ExportFormat.CSV, csvStreamingMax);
+        streamingMax.put(ExportFormat.EXCEL, excelStreamingMax);
+        streamingMax.put(ExportFormat.PDF, pdfStreamingMax);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public <C extends BaseCriteria> ExportPlan plan(ServiceTemplate<C, ?, ?, ?> service, @Nullable C criteria,
+                                                    ExportFormat format) {
+        long rows = service.countExportRows(criteria);
+        ExportStrategy strategy;
+        if (rows <= inMemoryMax.get(format)) {
+            strategy = ExportStrategy.IN_MEMORY;
+        } else if (rows <= streamingMax.get(format)) {
+            strategy = ExportStrategy.STREAMING;
+        } else {
+            strategy = ExportStrategy.ASYNC;
+        }
+
+        log.info("Planned {} export of {} rows from {} as {}", format, rows,
+                service.getEntityClass().getSimpleName(), strategy);
+        meterRegistry.counter(PLANS, "format", format.name(), "strategy", strategy.name()).increment();
+        DistributionSummary.builder(PLANNED_ROWS)
+                .description("Rows counted by the export planner")
+                .tag("format", format.name())
+                .register(meterRegistry)
+                .record(rows);
+        return new ExportPlan(format, strategy, rows);
+    }
+}
@@ -0,0 +1,327 @@
+package al.ikubinfo.registrationmanagement.service.impl;
+
+import al.ikubinfo.registrationmanagement.repository.criteria.BaseCriteria;
+import al.ikubinfo.registrationmanagement.service.ExportBulkheadService;
+import al.ikubinfo.registrationmanagement.service.ExportSnapshotService;
+import al.ikubinfo.registrationmanagement.service.ServiceTemplate;
+import al.ikubinfo.registrationmanagement.service.export.ExportFormat;
+import al.ikubinfo.registrationmanagement.service.export.ExportPermit;
+import al.ikubinfo.registrationmanagement.service.export.ExportProgress;
+import al.ikubinfo.registrationmanagement.service.export.ExportSnapshot;
+import al.ikubinfo.registrationmanagement.service.export.TableVersions;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Service
+@Slf4j
+public class ExportSnapshotServiceImpl implements ExportSnapshotService {
+    private static final String REQUESTS = "export.snapshots.requests";
+    /**
+     * Criteria properties that only page or sort a list, exports ignore them
+     */
+    private static final Set<String> PAGING_PROPERTIES = Set.of("pageNumber", "pageSize", "sortDirection", "orderBy",
+            "cursor");
+
+    private final Map<String, SnapshotEntry<?>> snapshots = new ConcurrentHashMap<>();
+    private final Path snapshotDir;
+    private final List<ExportFormat> warmFormats;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final ThreadPoolExecutor executor;
+    private final ObjectMapper criteriaMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    private List<ServiceTemplate<?, ?, ?, ?>> services;
+
+    @Autowired
+    private TableVersions tableVersions;
+
+    @Autowired
+    private ExportBulkheadService exportBulkhead;
+
+    public ExportSnapshotServiceImpl(@Value("${export.snapshots.dir}") String snapshotDir,
+                                     @Value("${export.snapshots.warm-formats:}") List<ExportFormat> warmFormats,
+                                     @Value("${export.snapshots.ttl:PT24H}") Duration ttl,
+                                     @Value("${export.snapshots.max-entries:100}") int maxEntries,
+                                     @Value("${export.snapshots.queue-capacity:10}") int queueCapacity,
+                                     ObjectMapper objectMapper,
+                                     MeterRegistry meterRegistry) throws IOException {
+        this.snapshotDir = Files.createDirectories(Paths.get(snapshotDir));
+        this.warmFormats = warmFormats;
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("export-snapshot-"));
+        this.criteriaMapper = objectMapper.copy()
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true);
+        this.meterRegistry = meterRegistry;
+
+        // table versions restart with the application, so the snapshots of a previous run cannot be trusted
+        try (Stream<Path> files = Files.list(this.snapshotDir)) {
+            files.forEach(this::deleteQuietly);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    @Nullable
+    public <C extends BaseCriteria> ExportSnapshot findSnapshot(ServiceTemplate<C, ?, ?, ?> service,
+                                                                @Nullable C criteria, ExportFormat format) {
+        SnapshotEntry<C> entry = entry(service, criteria, format);
+        entry.lastAccess = Instant.now();
+        ExportSnapshot snapshot = entry.current;
+        boolean fresh = snapshot != null && snapshot.getTableVersions().equals(tableVersionsOf(service));
+        meterRegistry.counter(REQUESTS, "result", fresh ? "hit" : "miss").increment();
+        if (!fresh) {
+            refreshLater(entry);
+        }
+        return fresh ? snapshot : null;
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${export.snapshots.initial-delay:PT1M}",
+            fixedDelayString = "${export.snapshots.refresh-interval:PT5M}")
+    public void refreshSnapshots() {
+        for (ServiceTemplate<?, ?, ?, ?> service : services) {
+            for (ExportFormat format : warmFormats) {
+                entry(service, null, format).pinned = true;
+            }
+        }
+
+        Instant expiry = Instant.now().minus(ttl);
+        snapshots.values().removeIf(entry -> {
+            if (!entry.pinned && entry.lastAccess.isBefore(expiry)) {
+                entry.deleteFiles(this::deleteQuietly);
+                return true;
+            }
+            return false;
+        });
+
+        for (SnapshotEntry<?> entry : snapshots.values()) {
+            entry.retire(this::deleteQuietly);
+            ExportSnapshot snapshot = entry.current;
+            // filtered exports are regenerated when they are asked for again
+            if (!entry.pinned
+                    || snapshot != null && snapshot.getTableVersions().equals(tableVersionsOf(entry.service))) {
+                continue;
+            }
+            try {
+                refresh(entry);
+            } catch (RuntimeException e) {
+                log.warn("Cannot refresh export snapshot {}", entry.key, e);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <C extends BaseCriteria> SnapshotEntry<C> entry(ServiceTemplate<C, ?, ?, ?> service, @Nullable C criteria,
+                                                            ExportFormat format) {
+        String key = service.getEntityClass().getSimpleName() + '|' + format + '|' + normalize(criteria);
+        SnapshotEntry<?> entry = snapshots.get(key);
+        if (entry == null) {
+            entry = snapshots.computeIfAbsent(key, k -> new SnapshotEntry<>(k, service, criteria, format));
+            evictLeastRecentlyUsed();
+        }
+        return (SnapshotEntry<C>) entry;
+    }
+
+    /**
+     * Keeps at most {@code export.snapshots.max-entries} snapshots of filtered exports, removing the ones
+     * downloaded least recently. The criteria come from the client, so their variants are unbounded
+     */
+    private synchronized void evictLeastRecentlyUsed() {
+        List<SnapshotEntry<?>> filtered = snapshots.values().stream()
+                .filter(entry -> !entry.pinned)
+                .sorted(Comparator.comparing(entry -> entry.lastAccess))
+                .collect(Collectors.toList());
+        for (SnapshotEntry<?> entry : filtered.subList(0, Math.max(0, filtered.size() - maxEntries))) {
+            if (snapshots.remove(entry.key, entry)) {
+                entry.deleteFiles(this::deleteQuietly);
+            }
+        }
+    }
+
+    /**
+     * Generates the snapshot in the background, the request that missed it is answered without it. One
+     * generation per entry is queued at a time and misses beyond the queue are dropped, a later request
+     * queues them again
+     */
+    private void refreshLater(SnapshotEntry<?> entry) {
+        if (!entry.queued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    refresh(entry);
+                } catch (RuntimeException e) {
+                    log.warn("Cannot refresh export snapshot {}", entry.key, e);
+                } finally {
+                    entry.queued.set(false);
+                }
+                // evicted while it was generated
+                if (snapshots.get(entry.key) != entry) {
+                    entry.deleteFiles(this::deleteQuietly);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.queued.set(false);
+        }
+    }
+
+    /**
+     * Criteria as json with sorted properties, without nulls and without the paging properties
+     */
+    private String normalize(@Nullable BaseCriteria criteria) {
+        if (criteria == null) {
+            return "{}";
+        }
+        ObjectNode node = criteriaMapper.valueToTree(criteria);
+        node.remove(PAGING_PROPERTIES);
+        return node.toString();
+    }
+
+    private String tableVersionsOf(ServiceTemplate<?, ?, ?, ?> service) {
+        return service.getExportSources().stream()
+                .sorted(Comparator.comparing(Class::getName))
+                .map(type -> String.valueOf(tableVersions.getVersion(type)))
+                .collect(Collectors.joining("."));
+    }
+
+    private <C extends BaseCriteria> ExportSnapshot refresh(SnapshotEntry<C> entry) {
+        synchronized (entry) {
+            String versions = tableVersionsOf(entry.service);
+            ExportSnapshot current = entry.current;
+            // a concurrent request may have generated it while this one waited
+            if (current != null && current.getTableVersions().equals(versions)) {
+                return current;
+            }
+            ExportSnapshot snapshot = generate(entry, versions);
+            if (current != null) {
+                entry.superseded.add(current);
+            }
+            entry.current = snapshot;
+            return snapshot;
+        }
+    }
+
+    private <C extends BaseCriteria> ExportSnapshot generate(SnapshotEntry<C> entry, String versions) {
+        Instant createdAt = Instant.now();
+        String name = entry.service.getEntityClass().getSimpleName().toLowerCase() + "-"
+                + DigestUtils.md5DigestAsHex(entry.key.getBytes(StandardCharsets.UTF_8)) + "-"
+                + Long.toString(createdAt.toEpochMilli(), 36);
+        Path file = snapshotDir.resolve(name + "." + entry.format.getExtension());
+        try (ExportPermit permit = exportBulkhead.acquire(entry.format, 0, false);
+             OutputStream output = new BufferedOutputStream(Files.newOutputStream(file))) {
+            entry.service.write(entry.format, entry.criteria, output, ExportProgress.NONE);
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw new UncheckedIOException("Cannot write export snapshot " + file, e);
+        } catch (RuntimeException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+
+        try {
+            log.info("Generated export snapshot {} at table versions {}", file.getFileName(), versions);
+            return new ExportSnapshot(entry.format, file, Files.size(file), versions, "\"" + name + "\"", createdAt);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read export snapshot " + file, e);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Cannot delete export snapshot {}", file, e);
+        }
+    }
+
+    /**
+     * Snapshots of one export. A superseded snapshot may still be downloading, its file is kept until the
+     * refresh after the one that retires it
+     */
+    private static class SnapshotEntry<C extends BaseCriteria> {
+        private final String key;
+        private final ServiceTemplate<C, ?, ?, ?> service;
+        private final C criteria;
+        private final ExportFormat format;
+
+        private volatile ExportSnapshot current;
+        private volatile Instant lastAccess = Instant.now();
+        /**
+         * Full exports kept warm by the scheduled refresh, never expired
+         */
+        private volatile boolean pinned;
+        private final AtomicBoolean queued = new AtomicBoolean();
+        private List<ExportSnapshot> superseded = new ArrayList<>();
+        private List<ExportSnapshot> retired = new ArrayList<>();
+
+        private SnapshotEntry(String key, ServiceTemplate<C, ?, ?, ?> service, @Nullable C criteria,
+                              ExportFormat format) {
+            this.key = key;
+            this.service = service;
+            this.criteria = criteria;
+            this.format = format;
+        }
+
+        private synchronized void retire(Consumer<Path> delete) {
+            retired.forEach(snapshot -> delete.accept(snapshot.getFile()));
+            retired = superseded;
+            superseded = new ArrayList<>();
+        }
+
+        private synchronized void deleteFiles(Consumer<Path> delete) {
+            retire(delete);
+            retire(delete);
+            if (current != null) {
+                delete.accept(current.getFile());
+                current = null;
+            }
+        }
+    }
+}
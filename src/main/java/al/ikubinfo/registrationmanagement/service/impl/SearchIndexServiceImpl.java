@@ -0,0 +1,118 @@
+package al.ikubinfo.registrationmanagement.service.impl;
+
+import al.ikubinfo.registrationmanagement.entity.BaseEntity;
+import al.ikubinfo.registrationmanagement.entity.CourseEntity;
+import al.ikubinfo.registrationmanagement.entity.EntityChangeEvent;
+import al.ikubinfo.registrationmanagement.entity.UserEntity;
+import al.ikubinfo.registrationmanagement.service.SearchIndexService;
+import al.ikubinfo.registrationmanagement.service.search.TrigramIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trigram indexes of the names the lists filter by substring. The indexes of an entity are built on first
+ * search and from then on updated by the entity change events once their transaction committed. A change
+ * committing while the indexes are built may be missed, the scheduled rebuild corrects it.
+ */
+@Service
+@Slf4j
+public class SearchIndexServiceImpl implements SearchIndexService {
+    private static final Map<Class<? extends BaseEntity>, List<String>> INDEXED_ATTRIBUTES = Map.of(
+            UserEntity.class, List.of("firstName", "lastName", "email"),
+            CourseEntity.class, List.of("courseName"));
+
+    private final Map<Class<? extends BaseEntity>, Map<String, TrigramIndex>> indexes = new ConcurrentHashMap<>();
+    private final int maxCandidates;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public SearchIndexServiceImpl(@Value("${search.max-candidates:1000}") int maxCandidates) {
+        this.maxCandidates = maxCandidates;
+    }
+
+    @Override
+    @Nullable
+    @Transactional(readOnly = true)
+    public Set<Long> search(Class<? extends BaseEntity> entityType, String attribute, String text) {
+        if (!INDEXED_ATTRIBUTES.getOrDefault(entityType, List.of()).contains(attribute)
+                || text.length() < TrigramIndex.GRAM) {
+            return null;
+        }
+        return indexes.computeIfAbsent(entityType, this::build).get(attribute).search(text, maxCandidates);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void entityChanged(EntityChangeEvent event) {
+        Map<String, TrigramIndex> entityIndexes = indexes.get(event.getEntityType());
+        // an entity not indexed yet is read with the change on first search
+        if (entityIndexes == null) {
+            return;
+        }
+        BaseEntity entity = event.getEntity();
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+        Long id = (Long) wrapper.getPropertyValue("id");
+        entityIndexes.forEach((attribute, index) -> {
+            if (entity.isDeleted()) {
+                index.remove(id);
+            } else {
+                index.put(id, (String) wrapper.getPropertyValue(attribute));
+            }
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Scheduled(initialDelayString = "${search.rebuild-interval:PT10M}",
+            fixedDelayString = "${search.rebuild-interval:PT10M}")
+    public void rebuild() {
+        indexes.replaceAll((type, entityIndexes) -> build(type));
+    }
+
+    /**
+     * Reads the indexed attributes of every live row, the soft deleted rows are filtered by the where clause
+     * of the entity
+     */
+    private Map<String, TrigramIndex> build(Class<? extends BaseEntity> entityType) {
+        List<String> attributes = INDEXED_ATTRIBUTES.get(entityType);
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<? extends BaseEntity> root = query.from(entityType);
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(root.get("id"));
+        attributes.forEach(attribute -> selections.add(root.get(attribute)));
+        query.multiselect(selections);
+
+        Map<String, TrigramIndex> entityIndexes = new HashMap<>();
+        attributes.forEach(attribute -> entityIndexes.put(attribute, new TrigramIndex()));
+        List<Tuple> rows = entityManager.createQuery(query).getResultList();
+        for (Tuple row : rows) {
+            for (int i = 0; i < attributes.size(); i++) {
+                entityIndexes.get(attributes.get(i)).put(row.get(0, Long.class), row.get(i + 1, String.class));
+            }
+        }
+        log.info("Indexed {} {} rows for search", rows.size(), entityType.getSimpleName());
+        return entityIndexes;
+    }
+}
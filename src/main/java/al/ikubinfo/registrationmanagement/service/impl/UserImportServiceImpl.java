@@ -0,0 +1,278 @@
+package al.ikubinfo.registrationmanagement.service.impl;
+
+import al.ikubinfo.registrationmanagement.converter.UserConverter;
+import al.ikubinfo.registrationmanagement.dto.importDtos.ImportErrorDto;
+import al.ikubinfo.registrationmanagement.dto.importDtos.ImportReportDto;
+import al.ikubinfo.registrationmanagement.dto.roleDtos.RoleEnum;
+import al.ikubinfo.registrationmanagement.dto.userDtos.NewUserDto;
+import al.ikubinfo.registrationmanagement.dto.userDtos.ReachFormEnum;
+import al.ikubinfo.registrationmanagement.entity.RoleEntity;
+import al.ikubinfo.registrationmanagement.entity.UserEntity;
+import al.ikubinfo.registrationmanagement.exception.InvalidImportFileException;
+import al.ikubinfo.registrationmanagement.repository.RoleRepository;
+import al.ikubinfo.registrationmanagement.repository.UserRepository;
+import al.ikubinfo.registrationmanagement.service.UserImportService;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Imports the file in chunks while reading it, so only one chunk of rows is held at a time. The rows of a
+ * chunk are validated in parallel, their emails checked against the database in one {@code in} lookup and
+ * the remaining ones inserted in their own transaction, in the jdbc batches the pooled ids allow. A chunk
+ * failing to insert, for instance because one of its emails was taken meanwhile, is reported row by row
+ * and the import goes on with the next one.
+ */
+@Service
+@Slf4j
+public class UserImportServiceImpl implements UserImportService {
+    private static final int FIRST_NAME = 0;
+    private static final int LAST_NAME = 1;
+    private static final int EMAIL = 2;
+    private static final int PHONE_NUMBER = 3;
+    private static final int REACH_FORM = 4;
+    private static final int BIRTH_DATE = 5;
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("[^@\\s]+@[^@\\s]+\\.[^@\\s]+");
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private UserConverter userConverter;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${imports.chunk-size:1000}")
+    private int chunkSize;
+
+    @Override
+    public ImportReportDto importStudents(InputStream csv) throws IOException {
+        Long studentRoleId = roleRepository.findByName(RoleEnum.STUDENT.toString()).getId();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        ImportReportDto report = new ImportReportDto();
+        // first line of every email imported from the file, to report the repeated ones
+        Map<String, Long> emailLines = new HashMap<>();
+
+        try (CSVReader reader = new CSVReader(new BufferedReader(
+                new InputStreamReader(csv, StandardCharsets.UTF_8)))) {
+            String[] header = reader.readNext();
+            if (header == null || header.length <= PHONE_NUMBER) {
+                throw new InvalidImportFileException("The file has no header row with at least "
+                        + (PHONE_NUMBER + 1) + " columns");
+            }
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            String[] values;
+            while ((values = reader.readNext()) != null) {
+                if (values.length == 1 && values[0].isBlank()) {
+                    continue;
+                }
+                chunk.add(new Row(reader.getLinesRead(), values));
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, studentRoleId, emailLines, transaction, report);
+                    chunk.clear();
+                }
+            }
+            importChunk(chunk, studentRoleId, emailLines, transaction, report);
+        } catch (CsvValidationException e) {
+            throw new InvalidImportFileException(e.getMessage());
+        }
+        report.getErrors().sort(Comparator.comparingLong(ImportErrorDto::getLine));
+        log.info("Imported {} of {} student rows", report.getImported(), report.getRowsRead());
+        return report;
+    }
+
+    private void importChunk(List<Row> chunk, Long studentRoleId, Map<String, Long> emailLines,
+                             TransactionTemplate transaction, ImportReportDto report) {
+        report.setRowsRead(report.getRowsRead() + chunk.size());
+        chunk.parallelStream().forEach(this::validate);
+
+        List<Row> candidates = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (row.error != null) {
+                report.getErrors().add(error(row, row.error));
+            } else {
+                candidates.add(row);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        Set<String> taken = userRepository.findTakenEmails(candidates.stream()
+                .map(row -> row.emailKey)
+                .collect(Collectors.toSet()));
+        // first line of every email inserted by this chunk, kept in emailLines only once the chunk commits
+        Map<String, Long> chunkLines = new HashMap<>();
+        List<Row> inserted = new ArrayList<>(candidates.size());
+        List<Row> repeated = new ArrayList<>();
+        for (Row row : candidates) {
+            Long firstLine = emailLines.get(row.emailKey);
+            if (taken.contains(row.emailKey)) {
+                report.getErrors().add(error(row, "A student with this email already exists"));
+            } else if (firstLine != null) {
+                report.getErrors().add(error(row, "The email is repeated from line " + firstLine));
+            } else if (chunkLines.putIfAbsent(row.emailKey, row.line) != null) {
+                repeated.add(row);
+            } else {
+                inserted.add(row);
+            }
+        }
+        if (inserted.isEmpty()) {
+            return;
+        }
+
+        try {
+            transaction.executeWithoutResult(status -> {
+                RoleEntity studentRole = entityManager.getReference(RoleEntity.class, studentRoleId);
+                for (Row row : inserted) {
+                    row.user.setRole(studentRole);
+                    entityManager.persist(row.user);
+                }
+                // sends the last batches and lets go of the entities before the next chunk is read
+                entityManager.flush();
+                entityManager.clear();
+            });
+            report.setImported(report.getImported() + inserted.size());
+            emailLines.putAll(chunkLines);
+            repeated.forEach(row -> report.getErrors().add(error(row,
+                    "The email is repeated from line " + chunkLines.get(row.emailKey))));
+        } catch (RuntimeException e) {
+            log.warn("Student import chunk failed", e);
+            String cause = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            // the lines the repeated rows point to were not imported either
+            inserted.forEach(row -> report.getErrors().add(error(row, "Not imported: " + cause)));
+            repeated.forEach(row -> report.getErrors().add(error(row, "Not imported: " + cause)));
+        }
+    }
+
+    /**
+     * Parses the row into a new student and checks it against the constraints of the form and of the
+     * entity, setting either the user or the error of the row. Called in parallel on the rows of a chunk
+     */
+    private void validate(Row row) {
+        String[] values = row.values;
+        if (values.length <= PHONE_NUMBER) {
+            row.error = "Expected at least " + (PHONE_NUMBER + 1) + " columns, found " + values.length;
+            return;
+        }
+        NewUserDto dto = new NewUserDto();
+        dto.setFirstName(value(values, FIRST_NAME));
+        dto.setLastName(value(values, LAST_NAME));
+        dto.setEmail(value(values, EMAIL));
+        dto.setPhoneNumber(value(values, PHONE_NUMBER));
+        row.email = dto.getEmail();
+        if (dto.getEmail() == null || !EMAIL_PATTERN.matcher(dto.getEmail()).matches()) {
+            row.error = "Invalid email";
+            return;
+        }
+        // required by the table, the form leaves them to the database
+        if (dto.getLastName() == null || dto.getPhoneNumber() == null) {
+            row.error = dto.getLastName() == null ? "Last name is required" : "Phone number is required";
+            return;
+        }
+        try {
+            String reachForm = value(values, REACH_FORM);
+            dto.setReachForm(reachForm == null ? null : ReachFormEnum.valueOf(reachForm.toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            row.error = "Unknown reach form " + values[REACH_FORM];
+            return;
+        }
+        try {
+            String birthDate = value(values, BIRTH_DATE);
+            dto.setBirthDate(birthDate == null ? null : LocalDate.parse(birthDate));
+        } catch (DateTimeParseException e) {
+            row.error = "Invalid birth date " + values[BIRTH_DATE] + ", expected yyyy-MM-dd";
+            return;
+        }
+
+        UserEntity user = userConverter.toNewUserEntity(dto);
+        user.set_assigned(Boolean.FALSE);
+        user.setModifiedDate(LocalDate.now());
+        user.setCreatedDate(LocalDate.now());
+        user.setDeleted(Boolean.FALSE);
+        String violations = violations(dto) + violations(user);
+        if (!violations.isEmpty()) {
+            row.error = violations.substring(2);
+            return;
+        }
+        row.user = user;
+        row.emailKey = dto.getEmail().toLowerCase(Locale.ROOT);
+    }
+
+    private <T> String violations(T bean) {
+        Set<ConstraintViolation<T>> violations = validator.validate(bean);
+        return violations.stream()
+                .map(violation -> "; " + violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining());
+    }
+
+    private static String value(String[] values, int column) {
+        if (column >= values.length || values[column].isBlank()) {
+            return null;
+        }
+        return values[column].trim();
+    }
+
+    private static ImportErrorDto error(Row row, String message) {
+        ImportErrorDto error = new ImportErrorDto();
+        error.setLine(row.line);
+        error.setEmail(row.email);
+        error.setMessage(message);
+        return error;
+    }
+
+    /**
+     * A data row of the file, with the student it describes once validated
+     */
+    private static class Row {
+        private final long line;
+        private final String[] values;
+        private String email;
+        private String emailKey;
+        private UserEntity user;
+        private String error;
+
+        private Row(long line, String[] values) {
+            this.line = line;
+            this.values = values;
+        }
+    }
+}
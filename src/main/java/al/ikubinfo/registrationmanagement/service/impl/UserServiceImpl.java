@@ -4,30 +4,36 @@ import al.ikubinfo.registrationmanagement.converter.UserConverter;
 import al.ikubinfo.registrationmanagement.dto.authDtos.PasswordDto;
 import al.ikubinfo.registrationmanagement.dto.roleDtos.RoleEnum;
 import al.ikubinfo.registrationmanagement.dto.userDtos.NewUserDto;
-import al.ikubinfo.registrationmanagement.dto.userDtos.ReachFormEnum;
+import al.ikubinfo.registrationmanagement.dto.userDtos.SimplifiedUserDto;
 import al.ikubinfo.registrationmanagement.dto.userDtos.UpdateUserDto;
 import al.ikubinfo.registrationmanagement.dto.userDtos.UserDto;
 import al.ikubinfo.registrationmanagement.entity.UserEntity;
 import al.ikubinfo.registrationmanagement.repository.CourseUserRepository;
+import al.ikubinfo.registrationmanagement.repository.CursorPage;
+import al.ikubinfo.registrationmanagement.repository.ListProjection;
 import al.ikubinfo.registrationmanagement.repository.RoleRepository;
 import al.ikubinfo.registrationmanagement.repository.UserEntityManagerRepository;
 import al.ikubinfo.registrationmanagement.repository.UserRepository;
 import al.ikubinfo.registrationmanagement.repository.criteria.UserCriteria;
 import al.ikubinfo.registrationmanagement.repository.specification.UserSpecification;
 import al.ikubinfo.registrationmanagement.security.Utils;
+import al.ikubinfo.registrationmanagement.service.EntityCounterService;
 import al.ikubinfo.registrationmanagement.service.ServiceTemplate;
 import al.ikubinfo.registrationmanagement.service.UserService;
+import al.ikubinfo.registrationmanagement.service.export.ExportProjection;
+import al.ikubinfo.registrationmanagement.service.export.ExportRowSink;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.Tuple;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -35,8 +41,6 @@ public class UserServiceImpl extends ServiceTemplate<UserCriteria, UserEntity, U
     @Autowired
     private UserConverter userConverter;
 
-    @Autowired
-    private UserSpecification specification;
 
     @Autowired
     private UserRepository userRepository;
@@ -44,6 +48,9 @@ public class UserServiceImpl extends ServiceTemplate<UserCriteria, UserEntity, U
     @Autowired
     private CourseUserRepository courseUserRepository;
 
+    @Autowired
+    private EntityCounterService entityCounter;
+
     @Autowired
     private RoleRepository roleRepository;
 
@@ -58,12 +65,14 @@ public class UserServiceImpl extends ServiceTemplate<UserCriteria, UserEntity, U
     }
 
     @Override
-    public Page<UserDto> filterUsers(UserCriteria criteria) {
-        Pageable pageable = PageRequest.of(criteria.getPageNumber(), criteria.getPageSize(),
-                Sort.Direction.valueOf(criteria.getSortDirection()), criteria.getOrderBy());
-        return userRepository
-                .findAll(specification.filter(criteria), pageable)
-                .map(userConverter::toDto);
+    public CursorPage<UserDto> filterUsers(UserCriteria criteria) {
+        return findPage(criteria, UserEntity.FETCH_ROLE).map(userConverter::toDto);
+    }
+
+    @Override
+    public CursorPage<SimplifiedUserDto> listUsers(UserCriteria criteria) {
+        return findProjectedPage(criteria, ListProjection.of(userConverter::getSimplifiedUserSelections,
+                tuple -> userConverter.toSimplifiedUserDto(tuple, 0)));
     }
 
     @Override
@@ -85,7 +94,7 @@ public class UserServiceImpl extends ServiceTemplate<UserCriteria, UserEntity, U
 
     @Override
     public Long countUsers() {
-        return userRepository.count();
+        return entityCounter.getCount(UserEntity.class);
     }
 
     @Override
@@ -96,6 +105,7 @@ public class UserServiceImpl extends ServiceTemplate<UserCriteria, UserEntity, U
     }
 
     @Override
+    @Transactional
     public void deleteUserById(Long id) {
         UserEntity student = getStudentEntity(id);
         courseUserRepository.getCourseUserEntitiesByUserId(id).forEach(e -> e.setDeleted(true));
@@ -148,17 +158,32 @@ public class UserServiceImpl extends ServiceTemplate<UserCriteria, UserEntity, U
     }
 
     @Override
-    public String[] populate(UserEntity entity) {
-        String reachForm = "";
-        if (entity.getReachForm() != null) {
-            reachForm = entity.getReachForm().toString();
+    protected void writeRow(UserEntity entity, ExportRowSink row) {
+        row.string(entity.getFirstName());
+        row.string(entity.getLastName());
+        row.string(entity.getEmail());
+        row.string(entity.getPhoneNumber());
+        row.enumValue(entity.getReachForm());
+    }
+
+    @Override
+    protected Optional<ExportProjection<UserEntity>> getExportProjection() {
+        return Optional.of(ExportProjection.of(this::getExportSelections, this::writeExportRow));
+    }
+
+    private List<Selection<?>> getExportSelections(Root<UserEntity> root) {
+        return List.of(
+                root.get("firstName"),
+                root.get("lastName"),
+                root.get("email"),
+                root.get("phoneNumber"),
+                root.get("reachForm"));
+    }
+
+    private void writeExportRow(Tuple tuple, ExportRowSink row) {
+        for (int i = 0; i < 4; i++) {
+            row.string(tuple.get(i, String.class));
         }
-        return new String[]{
-                entity.getFirstName(),
-                entity.getLastName(),
-                entity.getEmail(),
-                entity.getPhoneNumber(),
-                reachForm
-        };
+        row.enumValue(tuple.get(4, Enum.class));
     }
 }
@@ -0,0 +1,271 @@
+package al.ikubinfo.registrationmanagement.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Keys of the rows in one sorted array, with the id of each key in a parallel array, so the keys starting
+ * with a prefix are one contiguous range found by binary search. A row has a key for its whole value and
+ * one for every word start in it, so {@code "smi"} finds {@code "John Smith"}. Keys are upper cased. Updates
+ * are queued and merged into the arrays by the next search, a few by shifting the arrays in place, a burst of
+ * them, like a bulk import, in one pass linear in the number of keys. Safe for concurrent use.
+ */
+public class PrefixIndex {
+    /**
+     * Most updated rows merged by shifting the arrays in place, more are merged into new arrays in one pass
+     */
+    private static final int IN_PLACE_MERGE_MAX = 16;
+    /**
+     * Shortest prefix searched. A shorter one matches nearly every key, ranking them all would cost a walk of
+     * the whole index, so it finds nothing
+     */
+    public static final int MIN_PREFIX = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private String[] keys = new String[16];
+    private long[] ids = new long[16];
+    private int size;
+
+    /**
+     * Keys of the rows updated since the last merge by id, empty for the removed rows
+     */
+    private final Map<Long, Set<String>> pending = new HashMap<>();
+    private volatile boolean dirty;
+
+    /**
+     * Index of the given rows, sorted once instead of inserting the keys one by one
+     *
+     * @param rows values of every row by id
+     */
+    public static PrefixIndex of(Map<Long, ? extends Collection<String>> rows) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>();
+        rows.forEach((id, values) -> rowKeys(values).forEach(key -> entries.add(Map.entry(key, id))));
+        entries.sort(Map.Entry.<String, Long>comparingByKey().thenComparing(Map.Entry.comparingByValue()));
+
+        PrefixIndex index = new PrefixIndex();
+        index.keys = new String[Math.max(16, entries.size())];
+        index.ids = new long[index.keys.length];
+        for (Map.Entry<String, Long> entry : entries) {
+            index.keys[index.size] = entry.getKey();
+            index.ids[index.size] = entry.getValue();
+            index.size++;
+        }
+        return index;
+    }
+
+    /**
+     * Indexes the values of the row, replacing its previous ones
+     */
+    public void put(long id, Collection<String> values) {
+        update(id, rowKeys(values));
+    }
+
+    public void remove(long id) {
+        update(id, Set.of());
+    }
+
+    /**
+     * Ids of the rows with a key starting with the prefix, the highest ranked first and the newest id first
+     * among equal ranks
+     *
+     * @param prefix searched prefix, none are found for one shorter than {@link #MIN_PREFIX}
+     * @param limit  most ids returned
+     * @param rank   rank of a row by id
+     * @param filter rows that may be returned
+     * @return ids, at most the limit
+     */
+    public List<Long> search(String prefix, int limit, LongUnaryOperator rank, LongPredicate filter) {
+        String normalized = normalize(prefix);
+        if (normalized.trim().length() < MIN_PREFIX) {
+            return List.of();
+        }
+        Comparator<long[]> byRank = Comparator.<long[]>comparingLong(entry -> entry[1])
+                .thenComparingLong(entry -> entry[0]);
+        // the lowest ranked of the best rows found so far at the head
+        PriorityQueue<long[]> best = new PriorityQueue<>(limit + 1, byRank);
+        Set<Long> seen = new HashSet<>();
+        mergePending();
+        lock.readLock().lock();
+        try {
+            for (int i = lowerBound(normalized); i < size && keys[i].startsWith(normalized); i++) {
+                long id = ids[i];
+                if (!filter.test(id) || !seen.add(id)) {
+                    continue;
+                }
+                best.add(new long[]{id, rank.applyAsLong(id)});
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<long[]> ranked = new ArrayList<>(best);
+        ranked.sort(byRank.reversed());
+        List<Long> result = new ArrayList<>(ranked.size());
+        ranked.forEach(entry -> result.add(entry[0]));
+        return result;
+    }
+
+    public int size() {
+        mergePending();
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Set<String> rowKeys(Collection<String> values) {
+        Set<String> keys = new HashSet<>();
+        for (String value : values) {
+            if (value != null) {
+                keys.addAll(keys(value));
+            }
+        }
+        return keys;
+    }
+
+    private static List<String> keys(String value) {
+        String normalized = normalize(value).trim();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < normalized.length(); i++) {
+            if (normalized.charAt(i) != ' ' && (i == 0 || normalized.charAt(i - 1) == ' ')) {
+                keys.add(normalized.substring(i));
+            }
+        }
+        return keys;
+    }
+
+    private static String normalize(String value) {
+        return value.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * First position whose key is not less than the given one
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void insert(String key, long id) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        int position = lowerBound(key);
+        System.arraycopy(keys, position, keys, position + 1, size - position);
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        keys[position] = key;
+        ids[position] = id;
+        size++;
+    }
+
+    private void removeKeys(long id) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (ids[i] != id) {
+                keys[kept] = keys[i];
+                ids[kept] = ids[i];
+                kept++;
+            }
+        }
+        Arrays.fill(keys, kept, size, null);
+        size = kept;
+    }
+
+    private void update(long id, Set<String> rowKeys) {
+        lock.writeLock().lock();
+        try {
+            pending.put(id, rowKeys);
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops the keys of the updated rows and adds their new keys
+     */
+    private void mergePending() {
+        if (!dirty) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            if (pending.size() <= IN_PLACE_MERGE_MAX) {
+                pending.forEach((id, rowKeys) -> {
+                    removeKeys(id);
+                    rowKeys.forEach(key -> insert(key, id));
+                });
+            } else {
+                mergeSorted();
+            }
+            pending.clear();
+            dirty = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the kept keys and the new keys, sorted apart, into new arrays in one merge pass
+     */
+    private void mergeSorted() {
+        List<Map.Entry<String, Long>> added = new ArrayList<>();
+        pending.forEach((id, rowKeys) -> rowKeys.forEach(key -> added.add(Map.entry(key, id))));
+        added.sort(Map.Entry.<String, Long>comparingByKey().thenComparing(Map.Entry.comparingByValue()));
+
+        String[] mergedKeys = new String[Math.max(16, size + added.size())];
+        long[] mergedIds = new long[mergedKeys.length];
+        int merged = 0;
+        int next = 0;
+        for (int i = 0; i < size; i++) {
+            if (pending.containsKey(ids[i])) {
+                continue;
+            }
+            for (; next < added.size() && added.get(next).getKey().compareTo(keys[i]) < 0; next++, merged++) {
+                mergedKeys[merged] = added.get(next).getKey();
+                mergedIds[merged] = added.get(next).getValue();
+            }
+            mergedKeys[merged] = keys[i];
+            mergedIds[merged] = ids[i];
+            merged++;
+        }
+        for (; next < added.size(); next++, merged++) {
+            mergedKeys[merged] = added.get(next).getKey();
+            mergedIds[merged] = added.get(next).getValue();
+        }
+        keys = mergedKeys;
+        ids = mergedIds;
+        size = merged;
+    }
+}
@@ -0,0 +1,123 @@
+package al.ikubinfo.registrationmanagement.service.search;
+
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from every three character substring of a value to the ids of the rows holding it. A
+ * search intersects the id sets of the trigrams of the text, starting from the smallest, and checks the
+ * remaining candidates against their values, so the result is exact. Values and texts are compared upper
+ * cased, like the {@code upper(...) like} filters it replaces. Safe for concurrent use.
+ */
+public class TrigramIndex {
+    public static final int GRAM = 3;
+
+    private final Map<Long, String> values = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Indexes the value of the row, replacing its previous value
+     *
+     * @param value null to remove the row
+     */
+    public void put(Long id, @Nullable String value) {
+        lock.writeLock().lock();
+        try {
+            String previous = values.remove(id);
+            if (previous != null) {
+                for (String gram : grams(previous)) {
+                    Set<Long> ids = postings.get(gram);
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+            if (value != null) {
+                String normalized = normalize(value);
+                values.put(id, normalized);
+                for (String gram : grams(normalized)) {
+                    postings.computeIfAbsent(gram, key -> new HashSet<>()).add(id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        put(id, null);
+    }
+
+    /**
+     * Ids of the rows whose value contains the text
+     *
+     * @param text at least {@link #GRAM} characters long
+     * @param limit most ids returned
+     * @return matching ids, null when more than the limit match
+     */
+    @Nullable
+    public Set<Long> search(String text, int limit) {
+        String normalized = normalize(text);
+        if (normalized.length() < GRAM) {
+            throw new IllegalArgumentException("Cannot search less than " + GRAM + " characters: " + text);
+        }
+        lock.readLock().lock();
+        try {
+            List<Set<Long>> sets = new ArrayList<>();
+            for (String gram : grams(normalized)) {
+                Set<Long> ids = postings.get(gram);
+                if (ids == null) {
+                    return Set.of();
+                }
+                sets.add(ids);
+            }
+            sets.sort(Comparator.comparingInt(Set::size));
+
+            Set<Long> result = new HashSet<>();
+            for (Long id : sets.get(0)) {
+                if (values.get(id).contains(normalized)) {
+                    if (result.size() == limit) {
+                        return null;
+                    }
+                    result.add(id);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return values.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static String normalize(String value) {
+        return value.toUpperCase(Locale.ROOT);
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+}
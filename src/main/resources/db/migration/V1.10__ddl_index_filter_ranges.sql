@@ -0,0 +1,3 @@
+-- date range filters of the course and enrolment lists
+CREATE INDEX course_registration_start_date_idx ON course (registration_start_date);
+CREATE INDEX course_course_start_date_idx ON course (course_start_date);
@@ -0,0 +1,6 @@
+CREATE INDEX course_user_modified_date_idx ON course_user (modified_date);
+CREATE INDEX users_modified_date_idx ON users (modified_date);
+CREATE INDEX course_modified_date_idx ON course (modified_date);
+
+-- enrolments of changed users, the primary key only covers lookups by course
+CREATE INDEX course_user_user_id_idx ON course_user (user_id);
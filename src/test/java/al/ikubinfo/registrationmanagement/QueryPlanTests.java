@@ -0,0 +1,149 @@
+package al.ikubinfo.registrationmanagement;
+
+import al.ikubinfo.registrationmanagement.dto.userDtos.UserStatusEnum;
+import al.ikubinfo.registrationmanagement.repository.CourseUserRepository;
+import al.ikubinfo.registrationmanagement.repository.UserRepository;
+import al.ikubinfo.registrationmanagement.repository.criteria.CourseCriteria;
+import al.ikubinfo.registrationmanagement.repository.criteria.CourseUserCriteria;
+import al.ikubinfo.registrationmanagement.repository.criteria.UserCriteria;
+import al.ikubinfo.registrationmanagement.service.CourseService;
+import al.ikubinfo.registrationmanagement.service.CourseUserService;
+import al.ikubinfo.registrationmanagement.service.UserService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Plans of the hot queries, as H2 explains them in PostgreSQL mode. Every test runs the query the way the
+ * application does, records the sql hibernate sends and fails when its plan stops using the expected index.
+ * H2 has neither partial nor expression indexes, the postgresql only ones are not covered here.
+ */
+@SpringBootTest(classes = RegistrationManagementApplication.class,
+        properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "al.ikubinfo.registrationmanagement.QueryPlanTests$RecordingInspector")
+@ActiveProfiles("dev")
+@Transactional
+class QueryPlanTests {
+    private static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CourseUserRepository courseUserRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private CourseUserService courseUserService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Login looks the user up by the email index")
+    void loginByEmail() {
+        String plan = explain(() -> userRepository.findByEmail("john@gmail.com"));
+        assertUses(plan, "USERS_EMAIL_IDX");
+    }
+
+    @Test
+    @DisplayName("A student import looks the taken emails up by the lower cased email index")
+    void takenEmails() {
+        String plan = explain(() -> userRepository.findTakenEmails(List.of("john@gmail.com", "jane@gmail.com")));
+        assertUses(plan, "USERS_EMAIL_KEY_IDX");
+    }
+
+    @Test
+    @DisplayName("Enrolments of a course are read by the primary key")
+    void enrolmentsOfCourse() {
+        String plan = explain(() -> courseUserRepository.getCourseUserEntitiesByCourseId(1L));
+        assertUses(plan, "PUBLIC.PRIMARY_KEY_");
+    }
+
+    @Test
+    @DisplayName("The student status filter seeks the enrolments of every user by user id")
+    void usersByEnrolmentStatus() {
+        UserCriteria criteria = new UserCriteria();
+        criteria.setStatus(UserStatusEnum.PAID);
+        String plan = explain(() -> userService.listUsers(criteria));
+        assertNoScan(plan, "COURSE_USER");
+    }
+
+    @Test
+    @DisplayName("The registration period filter is a range scan")
+    void coursesByRegistrationPeriod() {
+        CourseCriteria criteria = new CourseCriteria();
+        criteria.setRegistrationStartPeriod(LocalDate.of(2022, 1, 1));
+        criteria.setRegistrationEndPeriod(LocalDate.of(2022, 12, 31));
+        String plan = explain(() -> courseService.listCourses(criteria));
+        assertUses(plan, "COURSE_REGISTRATION_START_DATE_IDX");
+    }
+
+    @Test
+    @DisplayName("The course start filter of the enrolment list is a range scan")
+    void enrolmentsByCourseStart() {
+        CourseUserCriteria criteria = new CourseUserCriteria();
+        criteria.setCourseStartDateFrom(LocalDate.of(2022, 1, 1));
+        criteria.setCourseStartDateTo(LocalDate.of(2022, 12, 31));
+        String plan = explain(() -> courseUserService.getCourseUserList(criteria));
+        assertUses(plan, "COURSE_COURSE_START_DATE_IDX");
+    }
+
+    /**
+     * Plans of the statements the call sends, the parameters bound to null. H2 plans a prepared statement
+     * before its parameters are bound, so the values do not change the plan
+     */
+    private String explain(Runnable call) {
+        STATEMENTS.clear();
+        call.run();
+        List<String> statements = new ArrayList<>(STATEMENTS);
+        Assertions.assertFalse(statements.isEmpty(), "No statement recorded");
+        return statements.stream()
+                .map(sql -> jdbcTemplate.query("EXPLAIN " + sql,
+                        statement -> {
+                            int count = statement.getParameterMetaData().getParameterCount();
+                            for (int i = 1; i <= count; i++) {
+                                statement.setObject(i, null);
+                            }
+                        },
+                        (rs, row) -> rs.getString(1)).get(0))
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static void assertUses(String plan, String index) {
+        Assertions.assertTrue(plan.contains(index), () -> "The plan does not use " + index + ":\n" + plan);
+    }
+
+    private static void assertNoScan(String plan, String table) {
+        Assertions.assertFalse(plan.contains("PUBLIC." + table + ".tableScan"),
+                () -> "The plan scans " + table + ":\n" + plan);
+    }
+
+    /**
+     * Records the sql of every statement hibernate prepares
+     */
+    public static class RecordingInspector implements StatementInspector {
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
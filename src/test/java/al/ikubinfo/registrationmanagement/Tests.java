@@ -1,13 +1,30 @@
 package al.ikubinfo.registrationmanagement;
 
+import al.ikubinfo.registrationmanagement.dto.BaseDto;
+import al.ikubinfo.registrationmanagement.dto.courseDtos.CourseDto;
 import al.ikubinfo.registrationmanagement.dto.courseDtos.CourseStatus;
+import al.ikubinfo.registrationmanagement.dto.courseDtos.SimplifiedCourseDto;
+import al.ikubinfo.registrationmanagement.dto.courseUserDtos.CourseUserListDto;
+import al.ikubinfo.registrationmanagement.dto.importDtos.ImportReportDto;
 import al.ikubinfo.registrationmanagement.dto.userDtos.ReachFormEnum;
+import al.ikubinfo.registrationmanagement.dto.userDtos.UserStatusEnum;
 import al.ikubinfo.registrationmanagement.entity.CourseEntity;
 import al.ikubinfo.registrationmanagement.entity.RoleEntity;
 import al.ikubinfo.registrationmanagement.entity.UserEntity;
+import al.ikubinfo.registrationmanagement.repository.CursorPage;
 import al.ikubinfo.registrationmanagement.repository.CourseRepository;
 import al.ikubinfo.registrationmanagement.repository.RoleRepository;
 import al.ikubinfo.registrationmanagement.repository.UserRepository;
+import al.ikubinfo.registrationmanagement.repository.criteria.CourseCriteria;
+import al.ikubinfo.registrationmanagement.repository.criteria.CourseUserCriteria;
+import al.ikubinfo.registrationmanagement.repository.criteria.UserCriteria;
+import al.ikubinfo.registrationmanagement.service.CourseService;
+import al.ikubinfo.registrationmanagement.service.CourseUserService;
+import al.ikubinfo.registrationmanagement.service.UserImportService;
+import al.ikubinfo.registrationmanagement.service.UserService;
+import al.ikubinfo.registrationmanagement.service.export.ExportWatermark;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,10 +32,24 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @SpringBootTest(classes = RegistrationManagementApplication.class)
 @ExtendWith(SpringExtension.class)
@@ -35,6 +66,23 @@ class Tests {
     @Autowired
     private CourseRepository courseRepository;
 
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private CourseUserService courseUserService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
 
     @Test
     @DisplayName("Save role")
@@ -89,4 +137,299 @@ class Tests {
         courseRepository.save(course);
         Assertions.assertEquals(4, courseRepository.findAll().size());// sepse 3 jane ne db
     }
-}
\ No newline at end of file
+
+    @Test
+    @Transactional
+    @DisplayName("List pages fetch their associations in a bounded number of statements")
+    void listPageStatements() {
+        // every student enrolled in every course, rolled back with the test
+        int enrolments = jdbcTemplate.update("insert into course_user (course_id, user_id, created_date, modified_date,"
+                + " deleted, status) select c.id, u.id, current_date, current_date, false, 'PAID'"
+                + " from course c cross join users u where c.deleted = false and u.deleted = false");
+        long students = userRepository.count();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            CourseCriteria courseCriteria = new CourseCriteria();
+            courseCriteria.setPageSize(10);
+            statistics.clear();
+            List<CourseDto> courses = courseService.filterCourses(courseCriteria).getContent();
+            // the page of ids, then the courses with their enrolments and students
+            Assertions.assertEquals(2, statistics.getPrepareStatementCount());
+            Assertions.assertFalse(courses.isEmpty());
+            courses.forEach(course -> Assertions.assertEquals(students, course.getCourseStudents().size()));
+
+            // list views read their columns only, no entity is loaded
+            statistics.clear();
+            Assertions.assertEquals(courses.size(), courseService.listCourses(courseCriteria).getNumberOfElements());
+            Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+            Assertions.assertEquals(0, statistics.getEntityLoadCount());
+
+            CourseUserCriteria courseUserCriteria = new CourseUserCriteria();
+            courseUserCriteria.setPageSize(enrolments);
+            statistics.clear();
+            List<CourseUserListDto> courseUsers = courseUserService.getCourseUserList(courseUserCriteria).getContent();
+            Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+            Assertions.assertEquals(0, statistics.getEntityLoadCount());
+            Assertions.assertEquals(enrolments, courseUsers.size());
+            courseUsers.forEach(courseUser -> Assertions.assertEquals(courseUser.getId().getUserId(),
+                    courseUser.getUserDto().getId()));
+
+            UserCriteria userCriteria = new UserCriteria();
+            userCriteria.setPageSize(10);
+            statistics.clear();
+            userService.listUsers(userCriteria);
+            Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+            Assertions.assertEquals(0, statistics.getEntityLoadCount());
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    @Transactional
+    @DisplayName("Inserted users take their ids from pooled sequence blocks and are written in jdbc batches")
+    void batchedUserInserts() {
+        RoleEntity student = roleRepository.findByName("STUDENT");
+        List<UserEntity> users = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            UserEntity user = new UserEntity();
+            user.setFirstName("Batched");
+            user.setLastName("Student" + i);
+            user.setPhoneNumber("0690000000");
+            user.setEmail("batched" + i + "@mail.com");
+            user.setPassword("password");
+            user.setReachForm(ReachFormEnum.EMPLOYEE);
+            user.setBirthDate(LocalDate.of(2000, 1, 1));
+            user.setRole(student);
+            users.add(user);
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            userRepository.saveAll(users);
+            userRepository.flush();
+            Assertions.assertEquals(users.size(), statistics.getEntityInsertCount());
+            // one insert statement per batch of 50 rows and one sequence call per block of 50 ids,
+            // with at most one more block when the one left over from earlier saves runs out
+            Assertions.assertTrue(statistics.getPrepareStatementCount() <= 3 + 3,
+                    () -> statistics.getPrepareStatementCount() + " statements");
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    @Transactional
+    @DisplayName("A student import reports every skipped row by its line and imports the rest")
+    void importReport() throws IOException {
+        String csv = "firstName,lastName,email,phoneNumber,reachForm,birthDate\n"
+                + "Ana,Hoxha,ana@mail.com,0691111111,FRIEND,2001-02-03\n"
+                + "Ben,Dema,not-an-email,0692222222,,\n"
+                + "Cara,Leka,ANA@mail.com,0693333333,,\n"
+                + "John,Doe,john@gmail.com,0694444444,,\n"
+                + "Dori,Mema,dori@mail.com,0695555555,PIGEON,\n"
+                + "Eda,Kola,eda@mail.com,0696666666,ONLINE,03/02/2001\n"
+                + "Fani,Zeka,fani@mail.com,0697777777\n"
+                + "\n"
+                + ",Gega,gent@mail.com,0698888888\n";
+        ImportReportDto report = userImportService.importStudents(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        Assertions.assertEquals(8, report.getRowsRead());
+        Assertions.assertEquals(2, report.getImported());
+        Assertions.assertEquals(List.of(
+                        "3 not-an-email: Invalid email",
+                        "4 ANA@mail.com: The email is repeated from line 2",
+                        "5 john@gmail.com: A student with this email already exists",
+                        "6 dori@mail.com: Unknown reach form PIGEON",
+                        "7 eda@mail.com: Invalid birth date 03/02/2001, expected yyyy-MM-dd",
+                        "10 gent@mail.com: firstName: First name is required"),
+                report.getErrors().stream()
+                        .map(error -> error.getLine() + " " + error.getEmail() + ": " + error.getMessage())
+                        .collect(Collectors.toList()));
+        Assertions.assertEquals(Set.of("ana@mail.com", "fani@mail.com"),
+                userRepository.findTakenEmails(List.of("ana@mail.com", "fani@mail.com", "gent@mail.com")));
+    }
+
+    @Test
+    @Transactional
+    @DisplayName("Enrolment filters return the rows with one enrolment matching every condition")
+    void enrolmentFilters() {
+        long java = courseId("Java Bootcamp");
+        long python = courseId("Python");
+        long csharp = courseId("C#");
+        long florian = userId("florian@gmail.com");
+        long john = userId("john@gmail.com");
+        jdbcTemplate.update("update course set registration_start_date = date '2019-01-01',"
+                + " course_start_date = date '2019-01-01'");
+        setCourseDates(java, "2022-01-01", "2022-02-01", "2022-02-15");
+        setCourseDates(python, "2022-03-01", "2022-04-01", "2022-12-01");
+        setCourseDates(csharp, "2022-05-01", "2022-06-01", "2022-06-15");
+        enrol(java, florian, UserStatusEnum.PAID, false);
+        enrol(python, florian, UserStatusEnum.REGISTERED, false);
+        enrol(python, john, UserStatusEnum.PAID, false);
+        enrol(csharp, john, UserStatusEnum.PAID, true);
+
+        CourseCriteria byStudent = new CourseCriteria();
+        byStudent.setStudentName("flor");
+        Assertions.assertEquals(Set.of(java, python), ids(courseService.listCourses(byStudent)));
+        byStudent.setStudentStatus(UserStatusEnum.PAID);
+        Assertions.assertEquals(Set.of(java), ids(courseService.listCourses(byStudent)));
+        // python has a student named john and a registered student, but not in the same enrolment
+        byStudent.setStudentName("john");
+        byStudent.setStudentStatus(UserStatusEnum.REGISTERED);
+        Assertions.assertEquals(Set.of(), ids(courseService.listCourses(byStudent)));
+        CourseCriteria byStatus = new CourseCriteria();
+        byStatus.setStudentStatus(UserStatusEnum.PAID);
+        Assertions.assertEquals(Set.of(java, python), ids(courseService.listCourses(byStatus)));
+
+        CourseCriteria byRegistration = new CourseCriteria();
+        byRegistration.setRegistrationStartPeriod(LocalDate.of(2022, 2, 1));
+        byRegistration.setRegistrationEndPeriod(LocalDate.of(2022, 5, 1));
+        Assertions.assertEquals(Set.of(python, csharp), ids(courseService.listCourses(byRegistration)));
+        byRegistration.setRegistrationStartPeriod(LocalDate.of(2022, 4, 1));
+        byRegistration.setRegistrationEndPeriod(null);
+        Assertions.assertEquals(Set.of(csharp), ids(courseService.listCourses(byRegistration)));
+
+        UserCriteria byEnrolment = new UserCriteria();
+        byEnrolment.setStatus(UserStatusEnum.PAID);
+        Assertions.assertEquals(Set.of(florian, john), ids(userService.listUsers(byEnrolment)));
+        byEnrolment.setStatus(UserStatusEnum.REGISTERED);
+        byEnrolment.setCourse(python);
+        Assertions.assertEquals(Set.of(florian), ids(userService.listUsers(byEnrolment)));
+        // florian is registered in python and enrolled in java, but not registered in java
+        byEnrolment.setCourse(java);
+        Assertions.assertEquals(Set.of(), ids(userService.listUsers(byEnrolment)));
+        UserCriteria byCourse = new UserCriteria();
+        byCourse.setCourse(csharp);
+        Assertions.assertEquals(Set.of(), ids(userService.listUsers(byCourse)));
+
+        // the upper bound applies to the course start, python ends after it
+        CourseUserCriteria byCourseStart = new CourseUserCriteria();
+        byCourseStart.setCourseStartDateFrom(LocalDate.of(2022, 3, 1));
+        byCourseStart.setCourseStartDateTo(LocalDate.of(2022, 4, 30));
+        Assertions.assertEquals(Set.of(List.of(python, florian), List.of(python, john)),
+                courseUserService.getCourseUserList(byCourseStart).stream()
+                        .map(courseUser -> List.of(courseUser.getId().getCourseId(), courseUser.getId().getUserId()))
+                        .collect(Collectors.toSet()));
+    }
+
+    @Test
+    @DisplayName("Name filters with like wildcards match like the plain like")
+    void searchWildcards() {
+        UserCriteria criteria = new UserCriteria();
+        criteria.setFirstName("fl_r%n");
+        Assertions.assertEquals(Set.of(userId("florian@gmail.com")), ids(userService.listUsers(criteria)));
+        CourseCriteria courseCriteria = new CourseCriteria();
+        courseCriteria.setCourseName("j%camp");
+        Assertions.assertEquals(Set.of(courseId("Java Bootcamp")), ids(courseService.listCourses(courseCriteria)));
+    }
+
+    private long courseId(String name) {
+        return jdbcTemplate.queryForObject("select id from course where course_name = ?", Long.class, name);
+    }
+
+    private long userId(String email) {
+        return jdbcTemplate.queryForObject("select id from users where email = ?", Long.class, email);
+    }
+
+    private void setCourseDates(long courseId, String registrationStart, String start, String end) {
+        jdbcTemplate.update("update course set registration_start_date = cast(? as date),"
+                + " course_start_date = cast(? as date), course_end_date = cast(? as date) where id = ?",
+                registrationStart, start, end, courseId);
+    }
+
+    private void enrol(long courseId, long userId, UserStatusEnum status, boolean deleted) {
+        jdbcTemplate.update("insert into course_user (course_id, user_id, created_date, modified_date, deleted,"
+                + " status) values (?, ?, current_date, current_date, ?, ?)", courseId, userId, deleted, status.name());
+    }
+
+    private static Set<Long> ids(CursorPage<? extends BaseDto> page) {
+        return page.stream().map(BaseDto::getId).collect(Collectors.toSet());
+    }
+
+    @Test
+    @Transactional
+    @DisplayName("Cursor pages sorted by a nullable column reach every row, nulls sorting last going up")
+    void nullableSortPages() {
+        LocalDate[] startDates = {null, LocalDate.of(2022, 3, 1), null, LocalDate.of(2022, 3, 1), null};
+        for (int i = 0; i < startDates.length; i++) {
+            CourseEntity course = new CourseEntity();
+            course.setCourseName("nullable sort " + i);
+            course.setCourseStartDate(startDates[i]);
+            course.setRegistrationStartDate(LocalDate.of(2022, 1, 10));
+            course.setStatus(CourseStatus.READY_TO_START);
+            courseRepository.save(course);
+        }
+        Comparator<CourseEntity> ascending = Comparator.comparing(CourseEntity::getCourseStartDate,
+                Comparator.nullsLast(Comparator.<LocalDate>naturalOrder())).thenComparing(CourseEntity::getId);
+        List<CourseEntity> courses = courseRepository.findAll();
+
+        for (Sort.Direction direction : Sort.Direction.values()) {
+            List<String> expected = courses.stream()
+                    .sorted(direction.isAscending() ? ascending : ascending.reversed())
+                    .map(CourseEntity::getCourseName)
+                    .collect(Collectors.toList());
+            CourseCriteria criteria = new CourseCriteria();
+            criteria.setOrderBy("courseStartDate");
+            criteria.setSortDirection(direction.name());
+            criteria.setPageSize(2);
+            Assertions.assertEquals(expected, pageThrough(criteria, courseService::listCourses,
+                    SimplifiedCourseDto::getCourseName));
+            Assertions.assertEquals(expected, pageThrough(criteria, courseService::filterCourses,
+                    CourseDto::getCourseName));
+        }
+    }
+
+    /**
+     * Names of every row, read forward along the next cursors and checked against the pages read back along
+     * the previous cursors
+     */
+    private static <D> List<String> pageThrough(CourseCriteria criteria, Function<CourseCriteria, CursorPage<D>> list,
+                                                Function<D, String> name) {
+        List<List<String>> pages = new ArrayList<>();
+        criteria.setCursor(null);
+        CursorPage<D> page = list.apply(criteria);
+        pages.add(page.map(name).getContent());
+        while (page.hasNext()) {
+            criteria.setCursor(page.getNextCursor());
+            page = list.apply(criteria);
+            pages.add(page.map(name).getContent());
+        }
+        for (int i = pages.size() - 2; i >= 0; i--) {
+            Assertions.assertTrue(page.hasPrevious());
+            criteria.setCursor(page.getPreviousCursor());
+            page = list.apply(criteria);
+            Assertions.assertEquals(pages.get(i), page.map(name).getContent());
+        }
+        Assertions.assertFalse(page.hasPrevious());
+        return pages.stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("A soft deleted enrolment is in the next delta as a tombstone")
+    void deltaTombstone() throws IOException {
+        Long courseId = jdbcTemplate.queryForObject("select min(id) from course where deleted = false", Long.class);
+        Long userId = jdbcTemplate.queryForObject("select min(id) from users where deleted = false", Long.class);
+        jdbcTemplate.update("insert into course_user (course_id, user_id, created_date, modified_date, deleted, status)"
+                + " values (?, ?, date '2020-01-01', date '2020-01-01', false, 'PAID')", courseId, userId);
+        try {
+            ExportWatermark watermark = ExportWatermark.now();
+            String tombstone = "DELETE," + courseId + "," + userId + ",";
+            Assertions.assertFalse(delta(watermark).contains(tombstone));
+
+            courseUserService.removeUserFromCourse(userId, courseId);
+            Assertions.assertTrue(delta(watermark).contains(tombstone));
+        } finally {
+            jdbcTemplate.update("delete from course_user where course_id = ? and user_id = ?", courseId, userId);
+        }
+    }
+
+    private String delta(ExportWatermark since) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        courseUserService.writeDeltaCsv(since, output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,146 @@
+package al.ikubinfo.registrationmanagement.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts per second of the statements hibernate sends for new users: with identity ids, one insert and one
+ * generated key fetch per row, and with pooled-lo sequence ids, one sequence call per block of 50 ids and
+ * the inserts in batches of 50. Runs on an in-memory H2 by default, where a statement costs no round trip,
+ * pass a postgresql url to see the difference over the network:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main BatchInsertBenchmark \
+ *     -p url=jdbc:postgresql://localhost:5432/registration-management?reWriteBatchedInserts=true \
+ *     -p user=postgres -p password=root"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchInsertBenchmark {
+    private static final int ROWS = 1000;
+    private static final int BLOCK = 50;
+    private static final String INSERT_IDENTITY = "insert into benchmark_identity_users "
+            + "(first_name, last_name, email, deleted) values (?, ?, ?, false)";
+    private static final String INSERT_POOLED = "insert into benchmark_pooled_users "
+            + "(id, first_name, last_name, email, deleted) values (?, ?, ?, ?, false)";
+
+    @Param("jdbc:h2:mem:batch-insert;MODE=PostgreSQL")
+    private String url;
+    @Param("sa")
+    private String user;
+    @Param("")
+    private String password;
+
+    private Connection connection;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(url, user, password);
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists benchmark_identity_users");
+            statement.execute("drop table if exists benchmark_pooled_users");
+            statement.execute("drop sequence if exists benchmark_pooled_users_seq");
+            statement.execute("create table benchmark_identity_users (id serial primary key, "
+                    + "first_name varchar(50), last_name varchar(50), email varchar(50), deleted boolean)");
+            statement.execute("create table benchmark_pooled_users (id integer primary key, "
+                    + "first_name varchar(50), last_name varchar(50), email varchar(50), deleted boolean)");
+            statement.execute("create sequence benchmark_pooled_users_seq increment by " + BLOCK);
+        }
+        connection.commit();
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("delete from benchmark_identity_users");
+            statement.execute("delete from benchmark_pooled_users");
+        }
+        connection.commit();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table benchmark_identity_users");
+            statement.execute("drop table benchmark_pooled_users");
+            statement.execute("drop sequence benchmark_pooled_users_seq");
+        }
+        connection.commit();
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long identityRowByRow() throws SQLException {
+        long lastId = 0;
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_IDENTITY,
+                Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < ROWS; i++) {
+                insert.setString(1, "First" + i);
+                insert.setString(2, "Last" + i);
+                insert.setString(3, "user" + i + "@mail.com");
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                    lastId = keys.getLong(1);
+                }
+            }
+        }
+        connection.commit();
+        return lastId;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long pooledBatches() throws SQLException {
+        long low = 0;
+        try (PreparedStatement next = connection.prepareStatement("select nextval('benchmark_pooled_users_seq')");
+             PreparedStatement insert = connection.prepareStatement(INSERT_POOLED)) {
+            for (int i = 0; i < ROWS; i++) {
+                if (i % BLOCK == 0) {
+                    if (i > 0) {
+                        insert.executeBatch();
+                    }
+                    try (ResultSet value = next.executeQuery()) {
+                        value.next();
+                        low = value.getLong(1);
+                    }
+                }
+                insert.setLong(1, low + i % BLOCK);
+                insert.setString(2, "First" + i);
+                insert.setString(3, "Last" + i);
+                insert.setString(4, "user" + i + "@mail.com");
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        return low;
+    }
+}
@@ -0,0 +1,111 @@
+package al.ikubinfo.registrationmanagement.benchmark;
+
+import al.ikubinfo.registrationmanagement.dto.courseDtos.CourseStatus;
+import al.ikubinfo.registrationmanagement.service.export.CsvRowSink;
+import al.ikubinfo.registrationmanagement.service.export.ExportDateFormat;
+import com.opencsv.CSVWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import static com.opencsv.ICSVParser.DEFAULT_ESCAPE_CHARACTER;
+import static com.opencsv.ICSVParser.DEFAULT_SEPARATOR;
+import static com.opencsv.ICSVWriter.DEFAULT_LINE_END;
+import static com.opencsv.ICSVWriter.NO_QUOTE_CHARACTER;
+
+/**
+ * Compares the per row cost of the csv course export written through {@code String[]} rows and opencsv
+ * with the typed {@link CsvRowSink}. Scores are per row, run with the gc profiler to see the allocation
+ * per row ({@code gc.alloc.rate.norm}):
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main CsvExportRowBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvExportRowBenchmark {
+    private static final int ROWS = 1024;
+
+    private final String[] names = new String[ROWS];
+    private final Double[] prices = new Double[ROWS];
+    private final CourseStatus[] statuses = new CourseStatus[ROWS];
+    private final LocalDate[] startDates = new LocalDate[ROWS];
+    private final LocalDate[] endDates = new LocalDate[ROWS];
+
+    private CSVWriter csvWriter;
+    private Writer sinkWriter;
+    private CsvRowSink sink;
+
+    @Setup
+    public void setUp() {
+        LocalDate start = LocalDate.of(2022, 1, 1);
+        for (int i = 0; i < ROWS; i++) {
+            names[i] = "Course number " + i;
+            prices[i] = 125.5 * i;
+            statuses[i] = CourseStatus.values()[i % CourseStatus.values().length];
+            startDates[i] = start.plusDays(i);
+            endDates[i] = start.plusDays(i + 90L);
+        }
+
+        csvWriter = new CSVWriter(newWriter(), DEFAULT_SEPARATOR, NO_QUOTE_CHARACTER,
+                DEFAULT_ESCAPE_CHARACTER, DEFAULT_LINE_END);
+        sinkWriter = newWriter();
+        sink = new CsvRowSink(sinkWriter);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void stringArrayRows() throws IOException {
+        for (int i = 0; i < ROWS; i++) {
+            csvWriter.writeNext(new String[]{
+                    names[i],
+                    prices[i].toString(),
+                    statuses[i].name(),
+                    startDates[i].format(DateTimeFormatter.ofPattern("dd-MM-yyyy")),
+                    endDates[i].format(DateTimeFormatter.ofPattern("dd-MM-yyyy"))
+            });
+        }
+        csvWriter.flush();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void rowSink() throws IOException {
+        for (int i = 0; i < ROWS; i++) {
+            sink.string(names[i]);
+            sink.number(prices[i]);
+            sink.enumValue(statuses[i]);
+            sink.date(startDates[i], ExportDateFormat.DAY_MONTH_YEAR);
+            sink.date(endDates[i], ExportDateFormat.DAY_MONTH_YEAR);
+            sink.endRow();
+        }
+        sinkWriter.flush();
+    }
+
+    private static Writer newWriter() {
+        return new BufferedWriter(new OutputStreamWriter(OutputStream.nullOutputStream(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,84 @@
+package al.ikubinfo.registrationmanagement.benchmark;
+
+import al.ikubinfo.registrationmanagement.RegistrationManagementApplication;
+import al.ikubinfo.registrationmanagement.service.export.ExportFormat;
+import al.ikubinfo.registrationmanagement.service.export.ExportProgress;
+import al.ikubinfo.registrationmanagement.service.impl.CourseServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Exports the courses of an in-memory database as pdf, laid out by a single {@code CustomDataTable} and in
+ * parts merged afterwards. Rows are fetched serially in both cases so only the layout differs. Results
+ * only mean something on a multi-core host:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main ParallelPdfBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelPdfBenchmark {
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    @Param("20000")
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private CourseServiceImpl courseService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RegistrationManagementApplication.class)
+                .run("--spring.profiles.active=dev",
+                        "--server.port=0",
+                        "--logging.level.root=WARN",
+                        "--export.parallel.parallelism=4",
+                        "--export.parallel.chunk-size=1000000000",
+                        "--export.pdf.parallel.enabled=" + parallel);
+        courseService = context.getBean(CourseServiceImpl.class);
+
+        List<Object[]> courses = IntStream.range(0, rows)
+                .mapToObj(i -> new Object[]{"Course " + i, i * 1.5})
+                .collect(Collectors.toList());
+        context.getBean(JdbcTemplate.class).batchUpdate("insert into course (course_name, price, status, "
+                + "registration_start_date, created_date, modified_date, deleted) "
+                + "values (?, ?, 'IN_PROGRESS', current_date, current_date, current_date, false)", courses);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void exportCourses() throws IOException {
+        courseService.write(ExportFormat.PDF, null, OutputStream.nullOutputStream(), ExportProgress.NONE);
+    }
+}
@@ -0,0 +1,93 @@
+package al.ikubinfo.registrationmanagement.benchmark;
+
+import al.ikubinfo.registrationmanagement.service.search.PrefixIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a student picker lookup in the {@link PrefixIndex} as the students grow: the top ten of the
+ * shortest prefix searched, matching a large share of the keys, of a longer prefix, the cost of updating a student,
+ * or a thousand of them as a bulk import does, paid by the next lookup:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main PrefixSearchBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrefixSearchBenchmark {
+    private static final String[] SYLLABLES = {"an", "ber", "do", "el", "fi", "gon", "ia", "jo", "ka", "lu", "mir",
+            "na", "or", "pe", "ra", "si", "ta", "vi", "xh", "za"};
+    private static final int LIMIT = 10;
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    private PrefixIndex index;
+    private long updated;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        Map<Long, List<String>> students = new HashMap<>();
+        for (long id = 0; id < rows; id++) {
+            String first = name(random);
+            String last = name(random);
+            students.put(id, List.of(first + " " + last, first + "." + last + "@mail.com"));
+        }
+        index = PrefixIndex.of(students);
+    }
+
+    @Benchmark
+    public List<Long> shortPrefix() {
+        return index.search("ka", LIMIT, id -> id, id -> true);
+    }
+
+    @Benchmark
+    public List<Long> longPrefix() {
+        return index.search("mirxh", LIMIT, id -> id, id -> true);
+    }
+
+    @Benchmark
+    public List<Long> update() {
+        updated = (updated + 1) % rows;
+        index.put(updated, List.of("Renamed Student", "renamed@mail.com"));
+        return index.search("mirxh", LIMIT, id -> id, id -> true);
+    }
+
+    @Benchmark
+    public List<Long> thousandUpdates() {
+        for (int i = 0; i < 1000; i++) {
+            updated = (updated + 1) % rows;
+            index.put(updated, List.of("Imported Student" + i, "imported" + i + "@mail.com"));
+        }
+        return index.search("mirxh", LIMIT, id -> id, id -> true);
+    }
+
+    private static String name(Random random) {
+        StringBuilder name = new StringBuilder();
+        for (int i = 2 + random.nextInt(2); i > 0; i--) {
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return name.toString();
+    }
+}
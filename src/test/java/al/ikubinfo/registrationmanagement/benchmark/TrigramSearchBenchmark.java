@@ -0,0 +1,66 @@
+package al.ikubinfo.registrationmanagement.benchmark;
+
+import al.ikubinfo.registrationmanagement.service.search.TrigramIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a name search in the {@link TrigramIndex} as the indexed rows grow, for a text matching a
+ * handful of names and for a common one matching up to the candidate limit:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main TrigramSearchBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrigramSearchBenchmark {
+    private static final String[] SYLLABLES = {"an", "ber", "do", "el", "fi", "gon", "ia", "jo", "ka", "lu", "mir",
+            "na", "or", "pe", "ra", "si", "ta", "vi", "xh", "za"};
+    private static final int LIMIT = 1000;
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    private TrigramIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        index = new TrigramIndex();
+        for (long id = 0; id < rows; id++) {
+            StringBuilder name = new StringBuilder();
+            for (int i = 2 + random.nextInt(3); i > 0; i--) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            index.put(id, name.toString());
+        }
+    }
+
+    @Benchmark
+    public Set<Long> rareText() {
+        return index.search("mirxhgon", LIMIT);
+    }
+
+    @Benchmark
+    public Set<Long> commonText() {
+        return index.search("ber", LIMIT);
+    }
+}
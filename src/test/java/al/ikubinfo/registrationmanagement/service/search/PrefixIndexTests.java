@@ -0,0 +1,120 @@
+package al.ikubinfo.registrationmanagement.service.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+class PrefixIndexTests {
+    private static final List<String> PREFIXES = List.of("JO", "john", "SM", "ANN", "AN", "ba", "BEN", "smith ann");
+
+    @Test
+    @DisplayName("A few updates merged in place are found by the next search")
+    void inPlaceMerge() {
+        Map<Long, List<String>> rows = rows(20);
+        PrefixIndex index = PrefixIndex.of(rows);
+
+        update(index, rows, 21L, List.of("Ben Johnson"));
+        update(index, rows, 3L, List.of("Anna Baker"));
+        update(index, rows, 3L, List.of("Anna Smith"));
+        update(index, rows, 7L, null);
+        update(index, rows, 7L, List.of("John Bell"));
+        update(index, rows, 8L, null);
+        assertMatches(index, rows);
+    }
+
+    @Test
+    @DisplayName("A burst of updates merged in one pass is found by the next search")
+    void bulkMerge() {
+        Map<Long, List<String>> rows = rows(40);
+        PrefixIndex index = PrefixIndex.of(rows);
+
+        for (long id = 41; id <= 60; id++) {
+            update(index, rows, id, List.of(name(id + 5)));
+        }
+        for (long id = 1; id <= 10; id++) {
+            update(index, rows, id, List.of(name(id + 3)));
+        }
+        for (long id = 11; id <= 15; id++) {
+            update(index, rows, id, null);
+        }
+        update(index, rows, 12L, List.of("Ben Johnson"));
+        update(index, rows, 45L, null);
+        assertMatches(index, rows);
+
+        // merged again in place afterwards
+        update(index, rows, 12L, List.of("Anna Baker"));
+        update(index, rows, 1L, null);
+        assertMatches(index, rows);
+    }
+
+    @Test
+    @DisplayName("An empty or one letter prefix finds nothing")
+    void shortPrefix() {
+        PrefixIndex index = PrefixIndex.of(rows(10));
+        Assertions.assertEquals(List.of(), index.search("", 10, id -> id, id -> true));
+        Assertions.assertEquals(List.of(), index.search(" j", 10, id -> id, id -> true));
+    }
+
+    private static Map<Long, List<String>> rows(int count) {
+        Map<Long, List<String>> rows = new HashMap<>();
+        for (long id = 1; id <= count; id++) {
+            rows.put(id, List.of(name(id)));
+        }
+        return rows;
+    }
+
+    private static String name(long id) {
+        String[] first = {"John", "Anna", "Ben", "Joana"};
+        String[] last = {"Smith", "Baker", "Annan", "Johns", "Bell"};
+        return first[(int) (id % first.length)] + " " + last[(int) (id % last.length)];
+    }
+
+    /**
+     * Puts the values of the row in the index and the expected rows, removes the row when they are null
+     */
+    private static void update(PrefixIndex index, Map<Long, List<String>> rows, long id, List<String> values) {
+        if (values == null) {
+            index.remove(id);
+            rows.remove(id);
+        } else {
+            index.put(id, values);
+            rows.put(id, values);
+        }
+    }
+
+    /**
+     * Every prefix finds the rows with a word start matching it, ranked here by id
+     */
+    private static void assertMatches(PrefixIndex index, Map<Long, List<String>> rows) {
+        for (String prefix : PREFIXES) {
+            String upper = prefix.toUpperCase(Locale.ROOT);
+            List<Long> expected = rows.entrySet().stream()
+                    .filter(row -> row.getValue().stream().anyMatch(value -> matches(value, upper)))
+                    .map(Map.Entry::getKey)
+                    .sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList());
+            Assertions.assertEquals(expected, index.search(prefix, rows.size(), id -> id, id -> true), prefix);
+        }
+        long keys = rows.values().stream()
+                .mapToLong(values -> values.stream().mapToLong(value -> value.split(" ").length).sum())
+                .sum();
+        Assertions.assertEquals(keys, index.size());
+    }
+
+    private static boolean matches(String value, String prefix) {
+        String upper = value.toUpperCase(Locale.ROOT);
+        for (int i = 0; i < upper.length(); i++) {
+            if ((i == 0 || upper.charAt(i - 1) == ' ') && upper.startsWith(prefix, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}